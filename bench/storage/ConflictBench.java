@@ -0,0 +1,112 @@
+package storage;
+
+import model.Appointment;
+import model.Event;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark for conflict and range lookups: a linear {@link Event#conflictsWith(Event)}
+ * scan over every event, as findConflicts used to do, against overlap queries on the
+ * {@link IntervalIndex}. Run with the application classes on the class path, optionally
+ * passing the calendar sizes to measure (default 10000 100000 1000000); give the JVM a
+ * heap of a few GB for the largest size.
+ */
+public class ConflictBench {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final int SPACING_MINUTES = 90; // Events of 60 minutes, so some probes conflict
+    private static final long MIN_RUN_NANOS = 1_000_000_000L;
+
+    private static long sink; // Keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        System.out.printf("%10s %16s %16s %16s %16s%n", "events", "linear conflict", "index conflict",
+                "index day", "index week");
+        for (int n : sizes) {
+            run(n);
+        }
+        System.out.println("(times per lookup; " + sink + ")");
+    }
+
+    private static void run(int n) {
+        List<Event> events = new ArrayList<>(n);
+        IntervalIndex index = IntervalIndex.EMPTY;
+        for (int i = 0; i < n; i++) {
+            Event e = new Appointment(null, "Event " + i, null, BASE.plusMinutes((long) i * SPACING_MINUTES), 60, null);
+            events.add(e);
+            long start = EventTable.toMinutes(e.getStartTime());
+            index = index.insert(i, start, start + e.getDurationMinutes());
+        }
+        long first = EventTable.toMinutes(BASE);
+        long span = (long) n * SPACING_MINUTES;
+        IntervalIndex built = index;
+
+        double linear = time(random -> {
+            Event probe = new Appointment(null, "Probe", null,
+                    EventTable.fromMinutes(first + (long) (random.nextDouble() * span)), 60, null);
+            for (Event e : events) {
+                if (e.conflictsWith(probe)) {
+                    sink++;
+                }
+            }
+        });
+        double conflict = time(random -> {
+            long start = first + (long) (random.nextDouble() * span);
+            built.forEachOverlapping(start, start + 60, (s, e, slot) -> {
+                sink += slot;
+                return true;
+            });
+        });
+        double day = time(random -> {
+            long start = first + (long) (random.nextDouble() * span);
+            built.forEachOverlapping(start, start + 24 * 60, (s, e, slot) -> {
+                sink += slot;
+                return true;
+            });
+        });
+        double week = time(random -> {
+            long start = first + (long) (random.nextDouble() * span);
+            built.forEachOverlapping(start, start + 7 * 24 * 60, (s, e, slot) -> {
+                sink += slot;
+                return true;
+            });
+        });
+        System.out.printf("%10d %16s %16s %16s %16s%n", n, format(linear), format(conflict), format(day), format(week));
+    }
+
+    private interface Lookup {
+        void run(Random random);
+    }
+
+    // Mean nanoseconds per lookup, after a warm-up run of the same length
+    private static double time(Lookup lookup) {
+        Random random = new Random(42);
+        for (int pass = 0; ; pass++) {
+            long count = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                lookup.run(random);
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MIN_RUN_NANOS);
+            if (pass == 1) {
+                return (double) elapsed / count;
+            }
+        }
+    }
+
+    private static String format(double nanos) {
+        return nanos >= 1_000_000 ? String.format("%.2f ms", nanos / 1_000_000)
+                : nanos >= 1_000 ? String.format("%.2f us", nanos / 1_000)
+                : String.format("%.0f ns", nanos);
+    }
+}
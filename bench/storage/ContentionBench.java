@@ -0,0 +1,151 @@
+package storage;
+
+import model.Appointment;
+import model.Event;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Contention benchmark: reader threads query random weeks while one writer keeps adding
+ * and deleting events, each change persisted by rewriting the snapshot file. Reads run
+ * once against the published snapshot, as {@link CalendarStorage} serves them, and once
+ * holding the storage monitor as well, as every read did before snapshots; the gap shows
+ * how much readers are held up by the writer. Meaningful only on a multi-core machine.
+ * <p>
+ * Run with the application classes on the class path. Arguments, all optional: the
+ * number of events (default 10000), seconds per run (default 3), then the reader
+ * thread counts to try (default 1 2 4 8).
+ */
+public class ContentionBench {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final int SPACING_MINUTES = 90;
+    private static final int MAX_SAMPLES = 1 << 20; // Latencies kept per reader for the percentiles
+
+    private static volatile long sink; // Keeps the JIT from dropping the reads
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int[] readerCounts = args.length > 2 ? new int[args.length - 2] : new int[]{1, 2, 4, 8};
+        for (int i = 2; i < args.length; i++) {
+            readerCounts[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        Path dir = Files.createTempDirectory("contention-bench");
+        Path file = dir.resolve("events.json");
+        seed(file, events);
+        System.out.printf("%d events, %d s per run, %d processors%n", events, seconds,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %8s %14s %10s %10s %10s %10s%n", "readers", "reads", "reads/s", "p50", "p99",
+                "max", "writes/s");
+        try (CalendarStorage storage = new CalendarStorage(file, PersistenceMode.SNAPSHOT)) {
+            for (int readers : readerCounts) {
+                run(storage, events, readers, seconds, false);
+                run(storage, events, readers, seconds, true);
+            }
+        }
+    }
+
+    private static void seed(Path file, int count) throws IOException {
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(new Appointment(null, "Event " + i, null, BASE.plusMinutes((long) i * SPACING_MINUTES), 60, null));
+        }
+        SnapshotFormat.JSON.write(file, events);
+    }
+
+    private static void run(CalendarStorage storage, int events, int readers, int seconds, boolean locked)
+            throws InterruptedException {
+        int weeks = Math.max(1, (int) ((long) events * SPACING_MINUTES / (7 * 24 * 60)));
+        AtomicBoolean stop = new AtomicBoolean();
+        long[][] samples = new long[readers][];
+        int[] sampled = new int[readers];
+        long[] reads = new long[readers];
+        long[] writes = new long[1];
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            int reader = r;
+            samples[r] = new long[MAX_SAMPLES];
+            threads.add(new Thread(() -> {
+                Random random = new Random(reader);
+                long count = 0;
+                long found = 0;
+                while (!stop.get()) {
+                    LocalDate week = BASE.toLocalDate().plusWeeks(random.nextInt(weeks));
+                    long start = System.nanoTime();
+                    if (locked) {
+                        synchronized (storage) {
+                            found += storage.getEventsForWeek(week).size();
+                        }
+                    } else {
+                        found += storage.getEventsForWeek(week).size();
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (sampled[reader] < MAX_SAMPLES) {
+                        samples[reader][sampled[reader]++] = elapsed;
+                    }
+                    count++;
+                }
+                reads[reader] = count;
+                sink = found;
+            }, "reader-" + r));
+        }
+        threads.add(new Thread(() -> {
+            // Fills the gaps between the seeded events, then empties them again
+            Random random = new Random(-1);
+            long count = 0;
+            while (!stop.get()) {
+                LocalDateTime start = BASE.plusMinutes((long) random.nextInt(events) * SPACING_MINUTES + 60);
+                Event e = new Appointment(null, "Write", null, start, 30, null);
+                try {
+                    storage.addEvent(e);
+                    storage.deleteEvent(e.getEventId());
+                    count += 2;
+                } catch (EventConflictException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            writes[0] = count;
+        }, "writer"));
+
+        for (Thread t : threads) {
+            t.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        long total = Arrays.stream(reads).sum();
+        int kept = Arrays.stream(sampled).sum();
+        long[] latencies = new long[kept];
+        for (int r = 0, at = 0; r < readers; r++) {
+            System.arraycopy(samples[r], 0, latencies, at, sampled[r]);
+            at += sampled[r];
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%8s %8s %14d %10s %10s %10s %10d%n", readers, locked ? "locked" : "snapshot",
+                total / seconds, format(percentile(latencies, 0.50)), format(percentile(latencies, 0.99)),
+                format(latencies.length == 0 ? 0 : latencies[latencies.length - 1]), writes[0] / seconds);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (p * sorted.length))];
+    }
+
+    private static String format(long nanos) {
+        return nanos >= 1_000_000 ? String.format("%.2f ms", nanos / 1e6)
+                : String.format("%.1f us", nanos / 1e3);
+    }
+}
@@ -0,0 +1,47 @@
+package storage;
+
+import model.Appointment;
+import model.Event;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Regression check: a journal left by a JOURNAL-mode run is folded into the snapshot
+ * when the file is next opened in SNAPSHOT mode, without losing any events.
+ * Run with the application classes on the class path; exits with status 1 on failure.
+ */
+public class JournalReopenCheck {
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("journal-reopen");
+        Path file = dir.resolve("events.json");
+        Path journalFile = dir.resolve("events.json.journal");
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+        try (CalendarStorage storage = new CalendarStorage(file, PersistenceMode.JOURNAL)) {
+            storage.addEvent(new Appointment(null, "First", null, start, 60, null));
+            storage.addEvent(new Appointment(null, "Second", null, start.plusHours(2), 60, null));
+        }
+        try (CalendarStorage storage = new CalendarStorage(file, PersistenceMode.SNAPSHOT)) {
+            check(storage.getAllEvents().size() == 2, "both events are loaded after the fold");
+        }
+        check(!Files.exists(journalFile), "the journal is deleted after the fold");
+        try (CalendarStorage storage = new CalendarStorage(file, PersistenceMode.SNAPSHOT)) {
+            List<Event> events = storage.getAllEvents();
+            check(events.size() == 2, "both events are in the snapshot after reopening");
+            check(events.get(0).getTitle().equals("First") && events.get(1).getTitle().equals("Second"),
+                    "the events keep their titles");
+        }
+        System.out.println("OK");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.err.println("FAILED: " + what);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package storage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regression check: when the scheduler starts, a reminder that came due at most
+ * {@value ReminderScheduler#MAX_LATE_MINUTES} minutes ago still fires, and older ones
+ * are dropped instead of all firing at once. Run with the application classes on the
+ * class path; exits with status 1 on failure.
+ */
+public class ReminderCatchUpCheck {
+
+    public static void main(String[] args) throws Exception {
+        List<String> fired = new ArrayList<>();
+        ReminderScheduler scheduler = new ReminderScheduler(batch -> {
+            synchronized (fired) {
+                for (ReminderScheduler.Due due : batch) {
+                    fired.add(due.eventId);
+                }
+            }
+        });
+        long start = EventTable.toMinutes(LocalDateTime.now()) + 30;
+        // An hour before (30 minutes ago, dropped) and 32 minutes before (2 minutes ago, fires)
+        scheduler.schedule("recent", start, new int[]{60, 32});
+        // Only reminders long overdue, so nothing fires
+        scheduler.schedule("stale", start, new int[]{120, 60});
+        // Not due yet
+        scheduler.schedule("upcoming", start, new int[]{10});
+        scheduler.start();
+        Thread.sleep(1000);
+        scheduler.close();
+
+        synchronized (fired) {
+            check(fired.equals(List.of("recent")), "only the recently due reminder fires, once: " + fired);
+        }
+        System.out.println("OK");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.err.println("FAILED: " + what);
+            System.exit(1);
+        }
+    }
+}
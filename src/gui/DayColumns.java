@@ -0,0 +1,154 @@
+package gui;
+
+import model.Event;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * How one day's events sit side by side in the day and week grids. Kept until a change
+ * to the calendar touches the day.
+ * <p>
+ * A sweep line runs over the events in start order. Events whose times overlap, directly
+ * or through others, form a cluster; within it each event takes the lowest column that is
+ * free at its start, and every event of the cluster shares the cluster's column count.
+ * An event then widens to the right over the columns that stay free for its whole time,
+ * found by binary search in each column's events. The arrangement does not depend on
+ * the grid's size, so it is kept while the window is resized.
+ */
+final class DayColumns {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MIN_MINUTES = 4; // Matches the smallest box the grids draw
+
+    /**
+     * One event's place in the day: its minutes within the day, clipped to it, the first of
+     * the columns it covers, how many it covers, and how many its cluster has.
+     */
+    static final class Slot {
+        final Event event;
+        final int startMinute;
+        final int endMinute;
+        final int column;
+        final int span;
+        final int columns;
+
+        private Slot(Event event, int startMinute, int endMinute, int column, int span, int columns) {
+            this.event = event;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.column = column;
+            this.span = span;
+            this.columns = columns;
+        }
+    }
+
+    private final List<Slot> slots;
+
+    private DayColumns(List<Slot> slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Arranges the events that overlap the day; the others are ignored.
+     */
+    static DayColumns arrange(LocalDate day, List<Event> events) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+        List<Event> inDay = new ArrayList<>();
+        List<int[]> spans = new ArrayList<>(); // start, end, index into inDay
+        for (Event e : events) {
+            if (e.getStartTime().isBefore(dayEnd) && e.getEndTime().isAfter(dayStart)) {
+                int start = (int) Math.max(0, ChronoUnit.MINUTES.between(dayStart, e.getStartTime()));
+                int end = (int) Math.min(MINUTES_PER_DAY, ChronoUnit.MINUTES.between(dayStart, e.getEndTime()));
+                spans.add(new int[]{start, Math.max(end, start + MIN_MINUTES), inDay.size()});
+                inDay.add(e);
+            }
+        }
+        // Earlier first; of those starting together, the longer one takes the lower column
+        spans.sort(Comparator.<int[]>comparingInt(s -> s[0]).thenComparingInt(s -> -s[1]));
+
+        int[] column = new int[spans.size()];
+        int[] columns = new int[spans.size()];
+        int[] span = new int[spans.size()];
+        PriorityQueue<int[]> active = new PriorityQueue<>(Comparator.comparingInt(a -> a[0])); // end, column
+        PriorityQueue<Integer> free = new PriorityQueue<>();
+        int clusterStart = 0;
+        int used = 0;
+        for (int i = 0; i < spans.size(); i++) {
+            int start = spans.get(i)[0];
+            while (!active.isEmpty() && active.peek()[0] <= start) {
+                free.add(active.poll()[1]);
+            }
+            if (active.isEmpty()) { // Nothing still running, so the previous cluster is done
+                closeCluster(spans, column, columns, span, clusterStart, i, used);
+                clusterStart = i;
+                used = 0;
+                free.clear();
+            }
+            column[i] = free.isEmpty() ? used++ : free.poll();
+            active.add(new int[]{spans.get(i)[1], column[i]});
+        }
+        closeCluster(spans, column, columns, span, clusterStart, spans.size(), used);
+
+        List<Slot> slots = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            int[] s = spans.get(i);
+            slots.add(new Slot(inDay.get(s[2]), s[0], s[1], column[i], span[i], columns[i]));
+        }
+        // Paint order: left columns first, so where boxes must overlap each shows its left edge
+        slots.sort(Comparator.<Slot>comparingInt(s -> s.column).thenComparingInt(s -> s.startMinute));
+        return new DayColumns(Collections.unmodifiableList(slots));
+    }
+
+    // Sets the column count of the cluster [from, to) and how far each of its events widens
+    private static void closeCluster(List<int[]> spans, int[] column, int[] columns, int[] span,
+                                     int from, int to, int used) {
+        Arrays.fill(columns, from, to, used);
+        // Each column's events, in start order and not overlapping each other
+        List<List<int[]>> byColumn = new ArrayList<>(used);
+        for (int c = 0; c < used; c++) {
+            byColumn.add(new ArrayList<>());
+        }
+        for (int i = from; i < to; i++) {
+            byColumn.get(column[i]).add(spans.get(i));
+        }
+        for (int i = from; i < to; i++) {
+            int[] s = spans.get(i);
+            int c = column[i] + 1;
+            while (c < used && !overlapsAny(byColumn.get(c), s[0], s[1])) {
+                c++;
+            }
+            span[i] = c - column[i];
+        }
+    }
+
+    private static boolean overlapsAny(List<int[]> column, int start, int end) {
+        // The last event starting before end is the only one that can reach past start
+        int lo = 0;
+        int hi = column.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (column.get(mid)[0] < end) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo > 0 && column.get(lo - 1)[1] > start;
+    }
+
+    /**
+     * @return The day's slots in paint order.
+     */
+    List<Slot> getSlots() {
+        return slots;
+    }
+}
@@ -0,0 +1,169 @@
+package gui;
+
+import model.Event;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where each event of a day or week grid is drawn, worked out once per grid size (and
+ * again after a change to the events it shows) so that painting and clicking share the
+ * same rectangles.
+ * <p>
+ * The boxes are held in a packed R-tree: sorted into vertical strips by x and by y within
+ * each strip, then grouped {@value #FAN_OUT} at a time into nodes that record the area
+ * they cover, level upon level up to a single root. Finding the boxes in a clip, or the
+ * box under a point, descends only into nodes that touch it, so a click takes O(log n)
+ * however many events the grid holds.
+ */
+final class EventLayout {
+
+    private static final int FAN_OUT = 8;
+
+    /**
+     * One event's box, in grid coordinates.
+     */
+    static final class Box {
+        final Event event;
+        final Rectangle bounds;
+        private int paintOrder; // Set by the layout
+
+        Box(Event event, Rectangle bounds) {
+            this.event = event;
+            this.bounds = bounds;
+        }
+    }
+
+    private static final Comparator<Box> BY_PAINT_ORDER = Comparator.comparingInt(b -> b.paintOrder);
+
+    private final int width;
+    private final int height;
+    private final Box[] boxes; // In tree order
+    // levels.get(0) holds each box's painted area as minX, minY, maxX, maxY (exclusive);
+    // each level above holds the areas of nodes grouping FAN_OUT entries of the one below
+    private final List<int[]> levels = new ArrayList<>();
+
+    /**
+     * @param boxes The boxes in paint order; later boxes are drawn over earlier ones.
+     */
+    EventLayout(int width, int height, List<Box> boxes) {
+        this.width = width;
+        this.height = height;
+        this.boxes = boxes.toArray(new Box[0]);
+        for (int i = 0; i < this.boxes.length; i++) {
+            this.boxes[i].paintOrder = i;
+        }
+        sortIntoStrips(this.boxes);
+
+        int[] level = new int[4 * this.boxes.length];
+        for (int i = 0; i < this.boxes.length; i++) {
+            Rectangle b = this.boxes[i].bounds;
+            // An outline is drawn one pixel past the box's width and height
+            level[4 * i] = b.x;
+            level[4 * i + 1] = b.y;
+            level[4 * i + 2] = b.x + b.width + 1;
+            level[4 * i + 3] = b.y + b.height + 1;
+        }
+        levels.add(level);
+        while (level.length > 4) {
+            level = group(level);
+            levels.add(level);
+        }
+    }
+
+    /**
+     * @return true if this layout was made for the given grid size.
+     */
+    boolean isFor(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    /**
+     * @return The boxes that paint into the clip (all of them if it is null), in paint order.
+     */
+    List<Box> inside(Rectangle clip) {
+        List<Box> result = new ArrayList<>();
+        if (clip == null) {
+            result.addAll(Arrays.asList(boxes));
+        } else {
+            collect(clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, result);
+        }
+        result.sort(BY_PAINT_ORDER);
+        return result;
+    }
+
+    /**
+     * @return The event drawn on top at the point, if any.
+     */
+    Optional<Event> eventAt(Point p) {
+        List<Box> candidates = new ArrayList<>();
+        collect(p.x, p.y, p.x + 1, p.y + 1, candidates);
+        Box top = null;
+        for (Box box : candidates) {
+            if (box.bounds.contains(p) && (top == null || box.paintOrder > top.paintOrder)) {
+                top = box;
+            }
+        }
+        return top == null ? Optional.empty() : Optional.of(top.event);
+    }
+
+    // Sort-tile-recursive packing, so that each run of FAN_OUT boxes covers a compact area
+    private static void sortIntoStrips(Box[] boxes) {
+        int n = boxes.length;
+        int leaves = (n + FAN_OUT - 1) / FAN_OUT;
+        int stripSize = (int) Math.ceil(Math.sqrt(leaves)) * FAN_OUT;
+        Arrays.sort(boxes, Comparator.comparingInt(b -> 2 * b.bounds.x + b.bounds.width));
+        for (int from = 0; from < n; from += stripSize) {
+            Arrays.sort(boxes, from, Math.min(n, from + stripSize), Comparator.comparingInt(b -> 2 * b.bounds.y + b.bounds.height));
+        }
+    }
+
+    private static int[] group(int[] level) {
+        int count = level.length / 4;
+        int[] parents = new int[4 * ((count + FAN_OUT - 1) / FAN_OUT)];
+        for (int p = 0; p < parents.length / 4; p++) {
+            int first = p * FAN_OUT;
+            int last = Math.min(count, first + FAN_OUT);
+            parents[4 * p] = Integer.MAX_VALUE;
+            parents[4 * p + 1] = Integer.MAX_VALUE;
+            parents[4 * p + 2] = Integer.MIN_VALUE;
+            parents[4 * p + 3] = Integer.MIN_VALUE;
+            for (int c = first; c < last; c++) {
+                parents[4 * p] = Math.min(parents[4 * p], level[4 * c]);
+                parents[4 * p + 1] = Math.min(parents[4 * p + 1], level[4 * c + 1]);
+                parents[4 * p + 2] = Math.max(parents[4 * p + 2], level[4 * c + 2]);
+                parents[4 * p + 3] = Math.max(parents[4 * p + 3], level[4 * c + 3]);
+            }
+        }
+        return parents;
+    }
+
+    // The area's bounds are exclusive
+    private void collect(int left, int top, int right, int bottom, List<Box> out) {
+        int root = levels.size() - 1;
+        for (int i = 0; i < levels.get(root).length / 4; i++) {
+            collect(root, i, left, top, right, bottom, out);
+        }
+    }
+
+    private void collect(int depth, int node, int left, int top, int right, int bottom, List<Box> out) {
+        int[] level = levels.get(depth);
+        if (level[4 * node] >= right || level[4 * node + 2] <= left
+                || level[4 * node + 1] >= bottom || level[4 * node + 3] <= top) {
+            return;
+        }
+        if (depth == 0) {
+            out.add(boxes[node]);
+            return;
+        }
+        int children = levels.get(depth - 1).length / 4;
+        for (int c = node * FAN_OUT; c < Math.min(children, (node + 1) * FAN_OUT); c++) {
+            collect(depth - 1, c, left, top, right, bottom, out);
+        }
+    }
+}
@@ -6,6 +6,9 @@ import gui.ModernComponents.ScallopedBorder; // Import the new border
 import model.Appointment;
 import model.Deadline;
 import model.Event;
+import model.RecurrenceRule;
+import storage.CalendarChange;
+import storage.CalendarQuery;
 import storage.CalendarStorage;
 import storage.EventConflictException;
 
@@ -13,9 +16,13 @@ import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,11 +32,20 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class MainFrame extends JFrame {
 
@@ -53,16 +69,26 @@ public class MainFrame extends JFrame {
         new ScallopedBorder(COLOR_OUTLINE.brighter(), 6, 1), // Scalloped edge
         new EmptyBorder(5, 5, 5, 5) // Inner padding
     );
+    private static final int MIN_EVENT_WIDTH = 40; // Narrowest event box before overlapping ones start to fan out
 
     // --- State ---
     private final CalendarStorage storage;
     private LocalDate selectedDate;
     private YearMonth currentMiniCalMonth;
     private String currentView = "Month";
+    // Column arrangements of recently shown days, shared by the day and week views
+    private final Map<LocalDate, DayColumns> dayColumns = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, DayColumns> eldest) {
+            return size() > 62;
+        }
+    };
 
     // --- Components ---
     private JPanel viewContainer;
     private MiniCalendarPanel miniCalendarPanel;
+    private SearchPanel searchPanel;
+    private JPanel currentViewPanel;
     private JLabel currentViewLabel;
 
     public MainFrame() {
@@ -75,6 +101,13 @@ public class MainFrame extends JFrame {
         setMinimumSize(new Dimension(1000, 700));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                searchPanel.shutdown();
+                storage.close(); // Flush pending writes before the JVM exits
+            }
+        });
 
         setLayout(new BorderLayout());
 
@@ -85,19 +118,50 @@ public class MainFrame extends JFrame {
         add(mainPanel, BorderLayout.CENTER);
 
         startReminderService();
+        startChangeListener();
         updateView();
     }
 
+    // Redraws the view when a change shows in it, whoever made the change
+    private void startChangeListener() {
+        storage.addChangeListener(changes -> SwingUtilities.invokeLater(() -> {
+            // Forget the arrangements of the days the changes touched, shown or not
+            dayColumns.keySet().removeIf(day -> touches(changes, day, day.plusDays(1)));
+            if (currentViewPanel instanceof ChangeAwareView) {
+                ((ChangeAwareView) currentViewPanel).calendarChanged(changes);
+            } // The year view shows no events
+            searchPanel.refresh(); // Results may have changed
+        }));
+    }
+
+    /**
+     * @return true if any of the changes shows between the starts of the two days.
+     */
+    private static boolean touches(List<CalendarChange> changes, LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+        for (CalendarChange change : changes) {
+            if (change.affects(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void startReminderService() {
-        storage.startReminderService(event -> {
+        storage.startBatchedReminderService(events -> {
+            // One dialog for all reminders that fire together
+            String message = events.stream()
+                    .map(event -> "Reminder: '" + event.getTitle() + "' at "
+                            + event.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")))
+                    .collect(Collectors.joining("\n"));
             // Ensure this runs on the Event Dispatch Thread
-            SwingUtilities.invokeLater(() -> {
-                String time = event.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
+            SwingUtilities.invokeLater(() ->
                 JOptionPane.showMessageDialog(this,
-                        "Reminder: '" + event.getTitle() + "' at " + time,
-                        "Event Reminder",
-                        JOptionPane.INFORMATION_MESSAGE);
-            });
+                        message,
+                        events.size() == 1 ? "Event Reminder" : "Event Reminders",
+                        JOptionPane.INFORMATION_MESSAGE)
+            );
         });
     }
 
@@ -131,6 +195,10 @@ public class MainFrame extends JFrame {
         controls.add(createEventBtn, gbc);
 
         gbc.gridy = 1;
+        searchPanel = new SearchPanel();
+        controls.add(searchPanel, gbc);
+
+        gbc.gridy = 2;
         gbc.weighty = 1; // Make mini-calendar take remaining space
         gbc.anchor = GridBagConstraints.NORTH;
         gbc.fill = GridBagConstraints.BOTH; // Fill both for mini-calendar
@@ -316,6 +384,7 @@ public class MainFrame extends JFrame {
             case "Year" -> new YearViewPanel();
             default -> new JPanel();
         };
+        currentViewPanel = newViewPanel;
 
         // Day and Week views are scrollable
         if (currentView.equals("Day") || currentView.equals("Week")) {
@@ -337,11 +406,56 @@ public class MainFrame extends JFrame {
 
     private void showEventDialog(Event eventToEdit) {
         EventDialog dialog = new EventDialog(this, eventToEdit);
-        dialog.setVisible(true);
+        dialog.setVisible(true); // Saved changes come back through the change listener
+    }
 
-        if (dialog.isSaved()) {
-            updateView();
+    /**
+     * The column arrangement of each day from the first. Days arranged before come from the
+     * cache; the others are arranged from one query covering them.
+     */
+    private List<DayColumns> arrangeDays(LocalDate first, int days) {
+        int firstMissing = days;
+        int lastMissing = -1;
+        for (int i = 0; i < days; i++) {
+            if (!dayColumns.containsKey(first.plusDays(i))) {
+                firstMissing = Math.min(firstMissing, i);
+                lastMissing = i;
+            }
+        }
+        if (lastMissing >= 0) {
+            CalendarQuery query = CalendarQuery.builder()
+                    .between(first.plusDays(firstMissing).atStartOfDay(), first.plusDays(lastMissing + 1).atStartOfDay())
+                    .build();
+            List<Event> events = storage.query(query).collect(Collectors.toList());
+            for (int i = firstMissing; i <= lastMissing; i++) {
+                dayColumns.computeIfAbsent(first.plusDays(i), day -> DayColumns.arrange(day, events));
+            }
         }
+        List<DayColumns> result = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            result.add(dayColumns.get(first.plusDays(i)));
+        }
+        return result;
+    }
+
+    /**
+     * An event's box within a day's area of the day or week grid, at one pixel per minute.
+     * Overlapping events split the area into columns; once those would be narrower than
+     * {@link #MIN_EVENT_WIDTH}, they overlap in a fan instead, each showing its left edge.
+     */
+    private static Rectangle eventBox(DayColumns.Slot slot, int left, int width, int gridHeight) {
+        int y = slot.startMinute;
+        int eventHeight = slot.endMinute - slot.startMinute;
+        if (y + eventHeight > gridHeight) eventHeight = gridHeight - y;
+        if (eventHeight < 4) eventHeight = 4; // Min height
+
+        if (slot.columns == 1) {
+            return new Rectangle(left, y + 2, width, eventHeight - 4);
+        }
+        int boxWidth = Math.max(width / slot.columns, Math.min(width, MIN_EVENT_WIDTH));
+        int step = (width - boxWidth) / (slot.columns - 1);
+        int spanWidth = boxWidth + (slot.span - 1) * step;
+        return new Rectangle(left + slot.column * step, y + 2, spanWidth - 2, eventHeight - 4); // 2px gap between columns
     }
 
     // --- Inner Class: MiniCalendarPanel (Sidebar) ---
@@ -463,14 +577,220 @@ public class MainFrame extends JFrame {
         }
     }
 
+    // --- Inner Class: SearchPanel (Sidebar) ---
+    private class SearchPanel extends JPanel {
+        private static final int RESULT_ROW_HEIGHT = 38;
+        private final JTextField queryField = new JTextField();
+        private final JLabel statusLabel = new JLabel(" ");
+        private final JList<SearchHit> resultList = new JList<>();
+        private final JScrollPane resultScroll;
+        // One query at a time; a newer query replaces any that hasn't started yet
+        private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                task -> {
+                    Thread thread = new Thread(task, "search");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        private Future<?> pendingSearch;
+        private volatile long generation; // Bumped on every query; results of older ones are dropped
+
+        SearchPanel() {
+            setOpaque(false);
+            setLayout(new BorderLayout(0, 5));
+
+            queryField.setFont(FONT_BODY_REG);
+            queryField.setForeground(COLOR_OUTLINE);
+            queryField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(COLOR_OUTLINE.brighter(), 1),
+                new EmptyBorder(5, 8, 5, 8)
+            ));
+            queryField.setBackground(COLOR_CELL_BG);
+            queryField.setToolTipText("Search titles, descriptions and locations");
+            queryField.getDocument().addDocumentListener(new DocumentListener() {
+                @Override public void insertUpdate(DocumentEvent e) { refresh(); }
+                @Override public void removeUpdate(DocumentEvent e) { refresh(); }
+                @Override public void changedUpdate(DocumentEvent e) { refresh(); }
+            });
+            queryField.addActionListener(e -> {
+                if (resultList.getModel().getSize() > 0) {
+                    showHit(resultList.getModel().getElementAt(0), false);
+                }
+            });
+
+            statusLabel.setFont(FONT_SMALL);
+            statusLabel.setForeground(COLOR_LIGHT_TEXT);
+
+            // Fixed cell sizes keep JList from measuring every result: only visible rows are rendered
+            resultList.setFixedCellHeight(RESULT_ROW_HEIGHT);
+            resultList.setFixedCellWidth(1);
+            resultList.setCellRenderer(new SearchHitRenderer());
+            resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            resultList.setBackground(COLOR_CELL_BG);
+            resultList.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int row = resultList.locationToIndex(e.getPoint());
+                    if (row >= 0 && resultList.getCellBounds(row, row).contains(e.getPoint())) {
+                        showHit(resultList.getModel().getElementAt(row), e.getClickCount() == 2);
+                    }
+                }
+            });
+
+            resultScroll = new JScrollPane(resultList, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+                    ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+            resultScroll.setBorder(THIN_OUTLINE_BORDER);
+            resultScroll.getVerticalScrollBar().setUI(new ModernScrollBarUI());
+            resultScroll.getVerticalScrollBar().setUnitIncrement(RESULT_ROW_HEIGHT);
+            resultScroll.setPreferredSize(new Dimension(0, 220));
+            resultScroll.setVisible(false);
+
+            JPanel results = new JPanel(new BorderLayout(0, 5));
+            results.setOpaque(false);
+            results.add(statusLabel, BorderLayout.NORTH);
+            results.add(resultScroll, BorderLayout.CENTER);
+
+            add(queryField, BorderLayout.NORTH);
+            add(results, BorderLayout.CENTER);
+        }
+
+        /**
+         * Starts a search for the current text, superseding any search still running.
+         * Called on the Event Dispatch Thread.
+         */
+        void refresh() {
+            String query = queryField.getText().trim();
+            long current = ++generation;
+            if (pendingSearch != null) {
+                pendingSearch.cancel(true);
+            }
+            if (query.isEmpty()) {
+                pendingSearch = null;
+                showResults(current, query, new SearchHit[0]);
+                return;
+            }
+            pendingSearch = executor.submit(() -> {
+                if (current != generation) {
+                    return; // Superseded while queued
+                }
+                SearchHit[] hits = rank(storage.search(query), LocalDateTime.now());
+                if (current == generation) {
+                    SwingUtilities.invokeLater(() -> showResults(current, query, hits));
+                }
+            });
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        // Upcoming events first, soonest first, then past events, most recent first
+        private SearchHit[] rank(List<Event> events, LocalDateTime now) {
+            SearchHit[] hits = new SearchHit[events.size()];
+            for (int i = 0; i < hits.length; i++) {
+                Event event = events.get(i);
+                LocalDateTime when = event.getStartTime();
+                if (event.isRecurring() && event.getEndTime().isBefore(now)) {
+                    // Show a repeating event at its next occurrence, or its last if it's over
+                    LocalDateTime next = event.getRecurrence().nextOccurrenceAfter(when, now);
+                    LocalDateTime last = event.getRecurrence().lastOccurrence(when);
+                    when = next != null ? next : last != null ? last : when;
+                }
+                hits[i] = new SearchHit(event, when, !when.plusMinutes(event.getDurationMinutes()).isBefore(now));
+            }
+            Arrays.sort(hits, (a, b) -> {
+                if (a.upcoming != b.upcoming) {
+                    return a.upcoming ? -1 : 1;
+                }
+                return a.upcoming ? a.when.compareTo(b.when) : b.when.compareTo(a.when);
+            });
+            return hits;
+        }
+
+        private void showResults(long forGeneration, String query, SearchHit[] hits) {
+            if (forGeneration != generation) {
+                return; // A newer query is on its way
+            }
+            resultList.setModel(new AbstractListModel<SearchHit>() {
+                @Override public int getSize() { return hits.length; }
+                @Override public SearchHit getElementAt(int index) { return hits[index]; }
+            });
+            resultScroll.setVisible(!query.isEmpty());
+            statusLabel.setText(query.isEmpty() ? " " : hits.length == 1 ? "1 result" : hits.length + " results");
+            revalidate();
+        }
+
+        // Selects the hit's day; a double-click opens it in the day view
+        private void showHit(SearchHit hit, boolean openDay) {
+            selectedDate = hit.when.toLocalDate();
+            currentMiniCalMonth = YearMonth.from(selectedDate);
+            if (openDay) {
+                setView("Day");
+            } else {
+                updateView();
+            }
+        }
+    }
+
+    private static class SearchHit {
+        final Event event;
+        final LocalDateTime when; // The start shown: a repeating event's next occurrence
+        final boolean upcoming;
+
+        SearchHit(Event event, LocalDateTime when, boolean upcoming) {
+            this.event = event;
+            this.when = when;
+            this.upcoming = upcoming;
+        }
+    }
+
+    // Two-line row: title over date and time; one instance stamps every visible row
+    private static class SearchHitRenderer extends JPanel implements ListCellRenderer<SearchHit> {
+        private static final DateTimeFormatter WHEN_FORMAT = DateTimeFormatter.ofPattern("EEE, MMM d yyyy, HH:mm");
+        private final JLabel title = new JLabel();
+        private final JLabel when = new JLabel();
+
+        SearchHitRenderer() {
+            super(new GridLayout(2, 1));
+            setBorder(new EmptyBorder(2, 8, 2, 8));
+            title.setFont(FONT_BODY_REG.deriveFont(Font.BOLD));
+            when.setFont(FONT_SMALL);
+            add(title);
+            add(when);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends SearchHit> list, SearchHit hit, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            title.setText(hit.event.getTitle());
+            when.setText(hit.when.format(WHEN_FORMAT) + (hit.event.isRecurring() ? " (repeats)" : ""));
+            setBackground(isSelected ? COLOR_ACCENT_PEACH : COLOR_CELL_BG);
+            title.setForeground(COLOR_OUTLINE);
+            when.setForeground(hit.upcoming ? COLOR_OUTLINE : COLOR_LIGHT_TEXT);
+            return this;
+        }
+    }
+
+    /**
+     * A view that brings itself up to date after changes, redrawing only what they touched.
+     */
+    private interface ChangeAwareView {
+        void calendarChanged(List<CalendarChange> changes);
+    }
+
     // --- Inner Class: MonthViewPanel ---
-    private class MonthViewPanel extends JPanel {
+    private class MonthViewPanel extends JPanel implements ChangeAwareView {
+        private final MonthGridPanel grid = new MonthGridPanel();
+
         MonthViewPanel() {
-            setLayout(new GridLayout(0, 7)); // 7 columns, flexible rows
+            setLayout(new BorderLayout());
             setBackground(COLOR_CELL_BG);
             setBorder(new EmptyBorder(10, 10, 10, 10)); // More padding
 
             // 1. Day of Week Headers
+            JPanel headers = new JPanel(new GridLayout(1, 7));
+            headers.setOpaque(false);
             String[] dayNames = {"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
             for (int i = 0; i < dayNames.length; i++) {
                 String day = dayNames[i];
@@ -482,76 +802,168 @@ public class MainFrame extends JFrame {
                     BorderFactory.createMatteBorder(0, 0, 1, (i == 6 ? 0 : 1), COLOR_OUTLINE.brighter()), // Bottom and Right (except last)
                     CELL_PADDING_BORDER
                 ));
-                add(header);
+                headers.add(header);
             }
+            add(headers, BorderLayout.NORTH);
+
+            // 2. Day Cells, painted in one component
+            add(grid, BorderLayout.CENTER);
+        }
+
+        @Override
+        public void calendarChanged(List<CalendarChange> changes) {
+            grid.calendarChanged(changes);
+        }
+    }
 
-            // 2. Day Cells
+    /**
+     * The month's day cells. Loads the whole grid's events with one range query, buckets
+     * them by day in one pass, and paints cells and event lines directly, drawing only
+     * as many lines as fit (plus a "+N more" line), so busy days stay cheap.
+     */
+    private class MonthGridPanel extends JPanel {
+        private final LocalDate firstDayOfGrid;
+        private final int weeks;
+        private final List<List<Event>> eventsByDay;
+
+        MonthGridPanel() {
+            setBackground(COLOR_CELL_BG);
             LocalDate firstDayOfMonth = selectedDate.withDayOfMonth(1);
-            LocalDate firstDayOfGrid = firstDayOfMonth.with(DayOfWeek.SUNDAY);
+            firstDayOfGrid = firstDayOfMonth.with(DayOfWeek.SUNDAY);
             LocalDate lastDayOfMonth = selectedDate.with(TemporalAdjusters.lastDayOfMonth());
-
-            LocalDate d = firstDayOfGrid;
-            for (int i = 0; i < 42; i++) { // Max 6 weeks * 7 days
-                JPanel cell = new JPanel(new BorderLayout());
-                cell.setBorder(DAY_CELL_BORDER); // Scalloped border
-                
-                if (d.getMonth().equals(selectedDate.getMonth())) {
-                    cell.setBackground(COLOR_CELL_BG);
-                } else {
-                    cell.setBackground(COLOR_LIGHT_TEXT.brighter().brighter()); // Very light gray for other months
+            int days = 0;
+            for (LocalDate d = firstDayOfGrid; days < 42; ) { // Max 6 weeks * 7 days
+                days++;
+                d = d.plusDays(1);
+                if (days > 29 && d.getDayOfWeek() == DayOfWeek.SUNDAY && d.isAfter(lastDayOfMonth)) {
+                    break; // Don't draw trailing empty weeks (if any)
+                }
+            }
+            weeks = days / 7;
+            eventsByDay = loadEvents(firstDayOfGrid, weeks * 7);
+
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int col = Math.min(6, e.getX() * 7 / Math.max(1, getWidth()));
+                    int row = Math.min(weeks - 1, e.getY() * weeks / Math.max(1, getHeight()));
+                    selectedDate = firstDayOfGrid.plusDays(row * 7L + col);
+                    if (e.getClickCount() == 2) {
+                        setView("Day"); // Double-click to go to day view
+                    } else {
+                        updateView(); // Single-click to select
+                    }
                 }
+            });
+        }
 
-                // Day number
-                JLabel dayNum = new JLabel(String.valueOf(d.getDayOfMonth()));
-                dayNum.setFont(FONT_BODY_REG);
-                dayNum.setForeground(COLOR_OUTLINE);
-                dayNum.setBorder(new EmptyBorder(5, 8, 5, 0)); // More padding
-                if (d.equals(LocalDate.now())) {
-                    dayNum.setFont(FONT_BODY_BOLD);
-                    dayNum.setForeground(COLOR_ACCENT_BLUE.darker()); // Use blue for 'Today'
+        // Reloads only the days the changes touched, and repaints only their cells
+        void calendarChanged(List<CalendarChange> changes) {
+            int first = -1;
+            int last = -1;
+            boolean[] touched = new boolean[weeks * 7];
+            for (int i = 0; i < touched.length; i++) {
+                LocalDate day = firstDayOfGrid.plusDays(i);
+                touched[i] = touches(changes, day, day.plusDays(1));
+                if (touched[i]) {
+                    first = first < 0 ? i : first;
+                    last = i;
                 }
-                cell.add(dayNum, BorderLayout.NORTH);
-
-                // Events
-                List<Event> events = storage.getEventsForDay(d);
-                if (!events.isEmpty()) {
-                    JPanel eventPanel = new JPanel();
-                    eventPanel.setLayout(new BoxLayout(eventPanel, BoxLayout.Y_AXIS));
-                    eventPanel.setOpaque(false);
-                    eventPanel.setBorder(new EmptyBorder(0, 8, 5, 5)); // Padding for events
-                    for (Event event : events) {
-                        JLabel eventLabel = new JLabel("• " + event.getTitle());
-                        eventLabel.setFont(FONT_SMALL); // Uses new 11pt font
-                        eventLabel.setForeground(COLOR_OUTLINE);
-                        eventPanel.add(eventLabel);
-                    }
-                    cell.add(eventPanel, BorderLayout.CENTER);
+            }
+            if (first < 0) {
+                return;
+            }
+            List<List<Event>> reloaded = loadEvents(firstDayOfGrid.plusDays(first), last - first + 1);
+            for (int i = first; i <= last; i++) {
+                if (touched[i]) {
+                    eventsByDay.set(i, reloaded.get(i - first));
+                    repaint(cellBounds(i));
                 }
-                
-                final LocalDate clickedDate = d;
-                cell.addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mouseClicked(MouseEvent e) {
-                        selectedDate = clickedDate;
-                        if (e.getClickCount() == 2) {
-                            setView("Day"); // Double-click to go to day view
-                        } else {
-                            updateView(); // Single-click to select
-                        }
-                    }
-                });
+            }
+        }
 
-                add(cell);
-                d = d.plusDays(1);
-                if (i > 28 && d.getDayOfWeek() == DayOfWeek.SUNDAY && d.isAfter(lastDayOfMonth)) {
-                    break; // Don't draw trailing empty weeks (if any)
+        private Rectangle cellBounds(int i) {
+            int x = (i % 7) * getWidth() / 7;
+            int y = (i / 7) * getHeight() / weeks;
+            return new Rectangle(x, y, (i % 7 + 1) * getWidth() / 7 - x, (i / 7 + 1) * getHeight() / weeks - y);
+        }
+
+        // One query for the whole grid; an event crossing midnight goes in each day it touches
+        private List<List<Event>> loadEvents(LocalDate first, int days) {
+            List<List<Event>> buckets = new ArrayList<>(days);
+            for (int i = 0; i < days; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            CalendarQuery query = CalendarQuery.builder()
+                    .between(first.atStartOfDay(), first.plusDays(days).atStartOfDay())
+                    .build();
+            storage.query(query).forEach(event -> {
+                long from = ChronoUnit.DAYS.between(first, event.getStartTime().toLocalDate());
+                long to = Math.max(from, ChronoUnit.DAYS.between(first, event.getEndTime().minusMinutes(1).toLocalDate()));
+                for (long d = Math.max(0, from); d <= Math.min(days - 1, to); d++) {
+                    buckets.get((int) d).add(event); // Results come by start, so each day stays sorted
                 }
+            });
+            return buckets;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Rectangle clip = g2.getClipBounds();
+            for (int i = 0; i < weeks * 7; i++) {
+                Rectangle cell = cellBounds(i);
+                if (clip == null || clip.intersects(cell)) {
+                    paintCell(g2, cell, firstDayOfGrid.plusDays(i), eventsByDay.get(i));
+                }
+            }
+            g2.dispose();
+        }
+
+        private void paintCell(Graphics2D g2, Rectangle cell, LocalDate day, List<Event> events) {
+            boolean inMonth = day.getMonth().equals(selectedDate.getMonth());
+            g2.setColor(inMonth ? COLOR_CELL_BG : COLOR_LIGHT_TEXT.brighter().brighter()); // Very light gray for other months
+            g2.fillRect(cell.x, cell.y, cell.width, cell.height);
+            DAY_CELL_BORDER.paintBorder(this, g2, cell.x, cell.y, cell.width, cell.height); // Scalloped border
+
+            Insets insets = DAY_CELL_BORDER.getBorderInsets(this);
+            Shape oldClip = g2.getClip();
+            g2.clipRect(cell.x + insets.left, cell.y + insets.top,
+                    cell.width - insets.left - insets.right, cell.height - insets.top - insets.bottom);
+            int left = cell.x + insets.left + 8;
+            int bottom = cell.y + cell.height - insets.bottom - 5;
+
+            // Day number
+            boolean today = day.equals(LocalDate.now());
+            g2.setFont(today ? FONT_BODY_BOLD : FONT_BODY_REG);
+            g2.setColor(today ? COLOR_ACCENT_BLUE.darker() : COLOR_OUTLINE); // Use blue for 'Today'
+            FontMetrics numberMetrics = g2.getFontMetrics();
+            int top = cell.y + insets.top + 5;
+            g2.drawString(String.valueOf(day.getDayOfMonth()), left, top + numberMetrics.getAscent());
+            top += numberMetrics.getHeight() + 5;
+
+            // Events, as many as fit
+            g2.setFont(FONT_SMALL);
+            FontMetrics metrics = g2.getFontMetrics();
+            int lineHeight = metrics.getHeight();
+            int fitting = Math.max(0, (bottom - top) / lineHeight);
+            int shown = events.size() <= fitting ? events.size() : Math.max(0, fitting - 1);
+            g2.setColor(COLOR_OUTLINE);
+            for (int i = 0; i < shown; i++) {
+                g2.drawString("• " + events.get(i).getTitle(), left, top + i * lineHeight + metrics.getAscent());
+            }
+            if (shown < events.size() && fitting > 0) {
+                g2.setColor(COLOR_LIGHT_TEXT);
+                g2.drawString("+" + (events.size() - shown) + " more", left, top + shown * lineHeight + metrics.getAscent());
             }
+            g2.setClip(oldClip);
         }
     }
 
     // --- Inner Class: WeekViewPanel ---
-    private class WeekViewPanel extends JPanel {
+    private class WeekViewPanel extends JPanel implements ChangeAwareView {
         private final JPanel timeColumn;
         private final WeekGridPanel gridPanel;
 
@@ -620,8 +1032,14 @@ public class MainFrame extends JFrame {
             gridPanel.setPreferredSize(new Dimension(800, 24 * 60)); // 1 pixel per minute
         }
 
+        @Override
+        public void calendarChanged(List<CalendarChange> changes) {
+            gridPanel.calendarChanged(changes);
+        }
+
         private class WeekGridPanel extends JPanel {
             private static final int HOUR_HEIGHT = 60; // 1 pixel per minute
+            private EventLayout layout;
 
             WeekGridPanel() {
                 setBackground(COLOR_CELL_BG);
@@ -656,28 +1074,44 @@ public class MainFrame extends JFrame {
              * Helper: Finds which event, if any, exists at the clicked point.
              */
             private Optional<Event> getEventAtPoint(Point p) {
+                return currentLayout().eventAt(p);
+            }
+
+            /**
+             * The event boxes for the current size; laid out again on resize or after calendarChanged.
+             */
+            private EventLayout currentLayout() {
+                if (layout == null || !layout.isFor(getWidth(), getHeight())) {
+                    layout = layOut();
+                }
+                return layout;
+            }
+
+            // Drops the layout if the changes touched the week, and repaints the days they touched
+            void calendarChanged(List<CalendarChange> changes) {
                 LocalDate startOfWeek = selectedDate.with(DayOfWeek.SUNDAY);
-                List<Event> events = storage.getEventsForWeek(startOfWeek);
                 int colWidth = getWidth() / 7;
+                for (int d = 0; d < 7; d++) {
+                    if (touches(changes, startOfWeek.plusDays(d), startOfWeek.plusDays(d + 1))) {
+                        layout = null;
+                        repaint(d * colWidth, 0, colWidth, getHeight());
+                    }
+                }
+            }
 
-                for (Event event : events) {
-                    LocalDateTime start = event.getStartTime();
-                    int dayIndex = (int) ChronoUnit.DAYS.between(startOfWeek, start.toLocalDate());
-
-                    if (dayIndex >= 0 && dayIndex < 7) {
-                        int x = dayIndex * colWidth;
-                        int y = start.getHour() * HOUR_HEIGHT + start.getMinute();
-                        int eventHeight = (int) event.getDurationMinutes();
-                        
-                        // This rectangle MUST match the one in paintComponent
-                        Rectangle eventBounds = new Rectangle(x + 5, y + 2, colWidth - 10, eventHeight - 4);
-                        
-                        if (eventBounds.contains(p)) {
-                            return Optional.of(event);
-                        }
+            private EventLayout layOut() {
+                LocalDate startOfWeek = selectedDate.with(DayOfWeek.SUNDAY);
+                List<DayColumns> days = arrangeDays(startOfWeek, 7);
+                int colWidth = getWidth() / 7;
+                List<EventLayout.Box> boxes = new ArrayList<>();
+
+                for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+                    int x = dayIndex * colWidth;
+                    for (DayColumns.Slot slot : days.get(dayIndex).getSlots()) {
+                        boxes.add(new EventLayout.Box(slot.event, eventBox(slot, x + 5, colWidth - 10, getHeight())));
                     }
                 }
-                return Optional.empty();
+                return new EventLayout(getWidth(), getHeight(), boxes);
             }
 
             @Override
@@ -704,42 +1138,29 @@ public class MainFrame extends JFrame {
                     g2.drawLine(x, 0, x, height);
                 }
 
-                // Draw Events
-                LocalDate startOfWeek = selectedDate.with(DayOfWeek.SUNDAY);
-                List<Event> events = storage.getEventsForWeek(startOfWeek);
-                
-                for (Event event : events) {
-                    LocalDateTime start = event.getStartTime();
-                    int dayIndex = (int) ChronoUnit.DAYS.between(startOfWeek, start.toLocalDate());
-                    
-                    if (dayIndex >= 0 && dayIndex < 7) {
-                        int x = dayIndex * colWidth;
-                        int y = start.getHour() * HOUR_HEIGHT + start.getMinute();
-                        int eventHeight = (int) event.getDurationMinutes();
-
-                        if (y + eventHeight > height) eventHeight = height - y;
-                        if (eventHeight < 4) eventHeight = 4; // Min height
-
-                        // Draw event box
-                        g2.setColor(COLOR_ACCENT_BLUE.brighter()); // Light blue event background
-                        g2.fillRoundRect(x + 5, y + 2, colWidth - 10, eventHeight - 4, 10, 10);
-                        g2.setColor(COLOR_OUTLINE.brighter()); // Softer outline
-                        g2.drawRoundRect(x + 5, y + 2, colWidth - 10, eventHeight - 4, 10, 10);
-
-                        // Draw text with hierarchy
-                        g2.setColor(COLOR_OUTLINE);
-                        Rectangle oldClip = g2.getClipBounds();
-                        g2.setClip(x + 8, y + 5, colWidth - 16, eventHeight - 10);
-                        
-                        g2.setFont(FONT_BODY_REG.deriveFont(Font.BOLD)); // Bold title
-                        g2.drawString(event.getTitle(), x + 10, y + 20);
-                        
-                        if (eventHeight > 35) { // Only draw if space
-                            g2.setFont(FONT_BODY_REG); // Regular time
-                            g2.drawString(start.toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")), x + 10, y + 35);
-                        }
-                        g2.setClip(oldClip); // Restore original clip
+                // Draw Events, only those in the clip
+                for (EventLayout.Box box : currentLayout().inside(g2.getClipBounds())) {
+                    Rectangle b = box.bounds;
+
+                    // Draw event box
+                    g2.setColor(COLOR_ACCENT_BLUE.brighter()); // Light blue event background
+                    g2.fillRoundRect(b.x, b.y, b.width, b.height, 10, 10);
+                    g2.setColor(COLOR_OUTLINE.brighter()); // Softer outline
+                    g2.drawRoundRect(b.x, b.y, b.width, b.height, 10, 10);
+
+                    // Draw text with hierarchy
+                    g2.setColor(COLOR_OUTLINE);
+                    Rectangle oldClip = g2.getClipBounds();
+                    g2.clipRect(b.x + 3, b.y + 3, b.width - 6, b.height - 6);
+
+                    g2.setFont(FONT_BODY_REG.deriveFont(Font.BOLD)); // Bold title
+                    g2.drawString(box.event.getTitle(), b.x + 5, b.y + 18);
+
+                    if (b.height > 31) { // Only draw if space
+                        g2.setFont(FONT_BODY_REG); // Regular time
+                        g2.drawString(box.event.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")), b.x + 5, b.y + 33);
                     }
+                    g2.setClip(oldClip); // Restore original clip
                 }
                 g2.dispose();
             }
@@ -747,7 +1168,7 @@ public class MainFrame extends JFrame {
     }
 
     // --- Inner Class: DayViewPanel ---
-    private class DayViewPanel extends JPanel {
+    private class DayViewPanel extends JPanel implements ChangeAwareView {
         private final JPanel timeColumn;
         private final DayGridPanel gridPanel;
         
@@ -807,8 +1228,14 @@ public class MainFrame extends JFrame {
             gridPanel.setPreferredSize(new Dimension(800, 24 * 60)); // 1 pixel per minute
         }
 
+        @Override
+        public void calendarChanged(List<CalendarChange> changes) {
+            gridPanel.calendarChanged(changes);
+        }
+
         private class DayGridPanel extends JPanel {
             private static final int HOUR_HEIGHT = 60; // 1 pixel per minute
+            private EventLayout layout;
 
             DayGridPanel() {
                 setBackground(COLOR_CELL_BG);
@@ -838,25 +1265,38 @@ public class MainFrame extends JFrame {
              * Helper: Finds which event, if any, exists at the clicked point.
              */
             private Optional<Event> getEventAtPoint(Point p) {
-                List<Event> events = storage.getEventsForDay(selectedDate);
-                int width = getWidth();
-                
-                for (Event event : events) {
-                    int x = 15;
-                    int y = event.getStartTime().getHour() * HOUR_HEIGHT + event.getStartTime().getMinute();
-                    int eventHeight = (int) event.getDurationMinutes();
-                    int eventWidth = width - 30;
-                    
-                    // This rectangle MUST match the one in paintComponent
-                    Rectangle eventBounds = new Rectangle(x, y + 2, eventWidth, eventHeight - 4);
-                    
-                    if (eventBounds.contains(p)) {
-                        return Optional.of(event);
-                    }
+                return currentLayout().eventAt(p);
+            }
+
+            /**
+             * The event boxes for the current size; laid out again on resize or after calendarChanged.
+             */
+            private EventLayout currentLayout() {
+                if (layout == null || !layout.isFor(getWidth(), getHeight())) {
+                    layout = layOut();
                 }
-                return Optional.empty();
+                return layout;
             }
 
+            void calendarChanged(List<CalendarChange> changes) {
+                if (touches(changes, selectedDate, selectedDate.plusDays(1))) {
+                    layout = null;
+                    repaint();
+                }
+            }
+
+            private EventLayout layOut() {
+                DayColumns day = arrangeDays(selectedDate, 1).get(0);
+                int width = getWidth();
+                int height = getHeight();
+                List<EventLayout.Box> boxes = new ArrayList<>(day.getSlots().size());
+
+                for (DayColumns.Slot slot : day.getSlots()) {
+                    // 15px padding from each edge
+                    boxes.add(new EventLayout.Box(slot.event, eventBox(slot, 15, width - 30, height)));
+                }
+                return new EventLayout(width, height, boxes);
+            }
 
             @Override
             protected void paintComponent(Graphics g) {
@@ -874,37 +1314,28 @@ public class MainFrame extends JFrame {
                     g2.drawLine(0, y, width, y);
                 }
 
-                // Draw Events
-                List<Event> events = storage.getEventsForDay(selectedDate);
-                
-                for (Event event : events) {
-                    LocalDateTime start = event.getStartTime();
-                    
-                    int x = 15; // More padding from left edge
-                    int y = start.getHour() * HOUR_HEIGHT + start.getMinute();
-                    int eventHeight = (int) event.getDurationMinutes();
-                    int eventWidth = width - 30; // More padding total
-
-                    if (y + eventHeight > height) eventHeight = height - y;
-                    if (eventHeight < 4) eventHeight = 4; // Min height
+                // Draw Events, only those in the clip
+                for (EventLayout.Box box : currentLayout().inside(g2.getClipBounds())) {
+                    Event event = box.event;
+                    Rectangle b = box.bounds;
 
                     // Draw event box
                     g2.setColor(COLOR_ACCENT_BLUE.brighter());
-                    g2.fillRoundRect(x, y + 2, eventWidth, eventHeight - 4, 10, 10);
+                    g2.fillRoundRect(b.x, b.y, b.width, b.height, 10, 10);
                     g2.setColor(COLOR_OUTLINE.brighter());
-                    g2.drawRoundRect(x, y + 2, eventWidth, eventHeight - 4, 10, 10);
+                    g2.drawRoundRect(b.x, b.y, b.width, b.height, 10, 10);
 
                     // Draw text with hierarchy
                     g2.setColor(COLOR_OUTLINE);
                     Rectangle oldClip = g2.getClipBounds();
-                    g2.setClip(x + 5, y + 5, eventWidth - 10, eventHeight - 10);
-                    
+                    g2.clipRect(b.x + 5, b.y + 3, b.width - 10, b.height - 6);
+
                     g2.setFont(FONT_BODY_REG.deriveFont(Font.BOLD)); // Bold title
-                    g2.drawString(event.getTitle(), x + 8, y + 20);
-                    
-                    if (eventHeight > 35) { // Only draw if space
+                    g2.drawString(event.getTitle(), b.x + 8, b.y + 18);
+
+                    if (b.height > 31) { // Only draw if space
                         g2.setFont(FONT_BODY_REG); // Regular time
-                        g2.drawString(start.toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) + " (" + event.getDurationMinutes() + "m)", x + 8, y + 35);
+                        g2.drawString(event.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) + " (" + event.getDurationMinutes() + "m)", b.x + 8, b.y + 33);
                     }
                     g2.setClip(oldClip);
                 }
@@ -1002,6 +1433,9 @@ public class MainFrame extends JFrame {
         private final JTextField durationField = new JTextField(5); // minutes
         private final JComboBox<String> typeCombo = new JComboBox<>(new String[]{"Appointment", "Deadline"});
         private final JTextField detailField = new JTextField(20); // Location/Course
+        private final JTextField remindersField = new JTextField(20); // Minutes before, comma-separated
+        private final JComboBox<String> repeatCombo = new JComboBox<>(new String[]{"Never", "Daily", "Weekly", "Monthly"});
+        private final JTextField repeatCountField = new JTextField(5); // Blank repeats forever
         private final JTextArea descriptionArea = new JTextArea(5, 20);
         private final JLabel detailLabel = new JLabel("Location:");
 
@@ -1056,7 +1490,19 @@ public class MainFrame extends JFrame {
             gbc.gridx = 1; gbc.gridwidth = 3; gbc.fill = GridBagConstraints.HORIZONTAL;
             formPanel.add(detailField, gbc);
 
-            applyLabelStyle(new JLabel("Description:"), formPanel, gbc, 0, 4);
+            applyLabelStyle(new JLabel("Reminders (mins before):"), formPanel, gbc, 0, 4);
+            gbc.gridx = 1; gbc.gridwidth = 3; gbc.fill = GridBagConstraints.HORIZONTAL;
+            formPanel.add(remindersField, gbc);
+
+            applyLabelStyle(new JLabel("Repeat:"), formPanel, gbc, 0, 5);
+            gbc.gridx = 1;
+            formPanel.add(repeatCombo, gbc);
+
+            applyLabelStyle(new JLabel("Times:"), formPanel, gbc, 2, 5);
+            gbc.gridx = 3;
+            formPanel.add(repeatCountField, gbc);
+
+            applyLabelStyle(new JLabel("Description:"), formPanel, gbc, 0, 6);
             gbc.gridx = 1; gbc.gridwidth = 3; gbc.fill = GridBagConstraints.BOTH; gbc.weighty = 1.0;
             JScrollPane scrollPane = new JScrollPane(descriptionArea);
             scrollPane.setBorder(BorderFactory.createLineBorder(COLOR_OUTLINE.brighter(), 1)); // Subtle border for text area
@@ -1068,7 +1514,10 @@ public class MainFrame extends JFrame {
             styleInputField(timeField);
             styleInputField(durationField);
             styleInputField(detailField);
+            styleInputField(remindersField);
+            styleInputField(repeatCountField);
             styleComboBox(typeCombo);
+            styleComboBox(repeatCombo);
             descriptionArea.setFont(FONT_BODY_REG);
             descriptionArea.setForeground(COLOR_OUTLINE);
             descriptionArea.setLineWrap(true);
@@ -1081,6 +1530,7 @@ public class MainFrame extends JFrame {
             typeCombo.addActionListener(e -> 
                 detailLabel.setText("Appointment".equals(typeCombo.getSelectedItem()) ? "Location:" : "Course:")
             );
+            repeatCombo.addActionListener(e -> repeatCountField.setEnabled(repeatCombo.getSelectedIndex() > 0));
 
             // Buttons
             JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
@@ -1156,12 +1606,20 @@ public class MainFrame extends JFrame {
                 typeCombo.setSelectedItem(eventToEdit.getType());
                 detailField.setText(eventToEdit.getDetail());
                 descriptionArea.setText(eventToEdit.getDescription());
+                remindersField.setText(Arrays.stream(eventToEdit.getReminderOffsets())
+                        .mapToObj(String::valueOf).collect(Collectors.joining(", ")));
+                RecurrenceRule rule = eventToEdit.getRecurrence();
+                if (rule != null) {
+                    repeatCombo.setSelectedIndex(rule.getFrequency().ordinal() + 1);
+                    repeatCountField.setText(rule.getCount() > 0 ? String.valueOf(rule.getCount()) : "");
+                }
             } else {
                 // **FIX**: Use current date/time for new event
                 dateToShow = LocalDate.now(); 
                 timeToSHow = LocalTime.now().truncatedTo(ChronoUnit.MINUTES);
                 
                 durationField.setText("60");
+                remindersField.setText(String.valueOf(Event.DEFAULT_REMINDER_MINUTES));
             }
             
             dateField.setText(dateToShow.format(DateTimeFormatter.ISO_LOCAL_DATE));
@@ -1169,6 +1627,7 @@ public class MainFrame extends JFrame {
             
             // Set label based on current/loaded type
             detailLabel.setText("Appointment".equals(typeCombo.getSelectedItem()) ? "Location:" : "Course:") ; 
+            repeatCountField.setEnabled(repeatCombo.getSelectedIndex() > 0);
         }
 
         private void saveEvent() {
@@ -1182,16 +1641,37 @@ public class MainFrame extends JFrame {
                 String type = (String) typeCombo.getSelectedItem();
                 String detail = detailField.getText();
                 String description = descriptionArea.getText();
+                // Blank means no reminders
+                int[] reminders = Arrays.stream(remindersField.getText().split(","))
+                        .map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+
+                RecurrenceRule recurrence = null;
+                if (repeatCombo.getSelectedIndex() > 0) {
+                    RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[repeatCombo.getSelectedIndex() - 1];
+                    String times = repeatCountField.getText().trim();
+                    recurrence = new RecurrenceRule(frequency, 1, times.isEmpty() ? 0 : Integer.parseInt(times), null);
+                }
 
                 // 2. Get ID (new or existing)
                 String id = (eventToEdit != null) ? eventToEdit.getEventId() : UUID.randomUUID().toString();
 
+                // An occurrence was opened: edit the whole series, moved by as much as this occurrence moved
+                Event series = eventToEdit != null && eventToEdit.isRecurring() ? storage.getEvent(id) : null;
+                if (series != null && recurrence != null) {
+                    startTime = series.getStartTime().plusMinutes(
+                            ChronoUnit.MINUTES.between(eventToEdit.getStartTime(), startTime));
+                    RecurrenceRule old = series.getRecurrence();
+                    recurrence = new RecurrenceRule(recurrence.getFrequency(),
+                            recurrence.getFrequency() == old.getFrequency() ? old.getInterval() : 1,
+                            recurrence.getCount(), old.getUntil(), old.getExceptions());
+                }
+
                 // 3. Create Event object
                 Event newEvent;
                 if ("Appointment".equals(type)) {
-                    newEvent = new Appointment(id, title, description, startTime, duration, detail);
+                    newEvent = new Appointment(id, title, description, startTime, duration, detail, reminders, recurrence);
                 } else {
-                    newEvent = new Deadline(id, title, description, startTime, duration, detail);
+                    newEvent = new Deadline(id, title, description, startTime, duration, detail, reminders, recurrence);
                 }
 
                 // 4. Call updateEvent if editing, addEvent if new
@@ -1217,6 +1697,11 @@ public class MainFrame extends JFrame {
         // This is the logic for the delete button
         private void deleteEvent() {
             if (eventToEdit == null) return;
+
+            if (eventToEdit.isRecurring()) {
+                deleteOccurrence();
+                return;
+            }
             
             int choice = JOptionPane.showConfirmDialog(this, 
                 "Are you sure you want to delete '" + eventToEdit.getTitle() + "'?",
@@ -1229,6 +1714,44 @@ public class MainFrame extends JFrame {
             }
         }
 
+        // Deletes either just the opened occurrence (as an exception to the series) or the whole series
+        private void deleteOccurrence() {
+            Object[] options = {"This Occurrence", "All Occurrences", "Cancel"};
+            int choice = JOptionPane.showOptionDialog(this,
+                "'" + eventToEdit.getTitle() + "' repeats. Delete only this occurrence, or all of them?",
+                "Confirm Delete", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE,
+                null, options, options[0]);
+
+            try {
+                if (choice == 0) {
+                    Event series = storage.getEvent(eventToEdit.getEventId());
+                    if (series != null) {
+                        RecurrenceRule rule = series.getRecurrence()
+                                .withException(eventToEdit.getStartTime().toLocalDate());
+                        int[] reminders = series.hasDefaultReminders() ? null : series.getReminderOffsets();
+                        if (series instanceof Deadline) {
+                            storage.updateEvent(new Deadline(series.getEventId(), series.getTitle(),
+                                    series.getDescription(), series.getStartTime(), series.getDurationMinutes(),
+                                    series.getDetail(), reminders, rule));
+                        } else {
+                            storage.updateEvent(new Appointment(series.getEventId(), series.getTitle(),
+                                    series.getDescription(), series.getStartTime(), series.getDurationMinutes(),
+                                    series.getDetail(), reminders, rule));
+                        }
+                    }
+                } else if (choice == 1) {
+                    storage.deleteEvent(eventToEdit.getEventId());
+                } else {
+                    return;
+                }
+                saved = true;
+                dispose();
+            } catch (EventConflictException ex) {
+                // Removing an occurrence can't create a conflict the series didn't already have
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Conflict Detected", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
         public boolean isSaved() {
             return saved;
         }
@@ -12,6 +12,16 @@ public class Appointment extends Event {
         super(eventId, title, description, startTime, durationMinutes, detail);
     }
 
+    public Appointment(String eventId, String title, String description,
+                       LocalDateTime startTime, int durationMinutes, String detail, int[] reminderOffsets) {
+        super(eventId, title, description, startTime, durationMinutes, detail, reminderOffsets);
+    }
+
+    public Appointment(String eventId, String title, String description, LocalDateTime startTime,
+                       int durationMinutes, String detail, int[] reminderOffsets, RecurrenceRule recurrence) {
+        super(eventId, title, description, startTime, durationMinutes, detail, reminderOffsets, recurrence);
+    }
+
     @Override
     public String getType() {
         return "Appointment";
@@ -12,6 +12,16 @@ public class Deadline extends Event {
         super(eventId, title, description, startTime, durationMinutes, detail);
     }
 
+    public Deadline(String eventId, String title, String description,
+                    LocalDateTime startTime, int durationMinutes, String detail, int[] reminderOffsets) {
+        super(eventId, title, description, startTime, durationMinutes, detail, reminderOffsets);
+    }
+
+    public Deadline(String eventId, String title, String description, LocalDateTime startTime,
+                    int durationMinutes, String detail, int[] reminderOffsets, RecurrenceRule recurrence) {
+        super(eventId, title, description, startTime, durationMinutes, detail, reminderOffsets, recurrence);
+    }
+
     @Override
     public String getType() {
         return "Deadline";
@@ -1,6 +1,7 @@
 package model;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -9,12 +10,22 @@ import java.util.UUID;
  */
 public abstract class Event {
 
+    /**
+     * Minutes before the start of the reminder an event gets unless given its own.
+     */
+    public static final int DEFAULT_REMINDER_MINUTES = 10;
+
+    // Shared by every event using the default, so it costs nothing per event
+    private static final int[] DEFAULT_REMINDER_OFFSETS = {DEFAULT_REMINDER_MINUTES};
+
     private final String eventId;
     private final String title;
     private final String description;
     private final LocalDateTime startTime;
     private final int durationMinutes;
     private final String detail; // Location for Appointment, Course for Deadline, etc.
+    private final int[] reminderOffsets; // Minutes before the start, latest-firing last
+    private final RecurrenceRule recurrence; // null for a one-off event
 
     /**
      * Constructs a new Event.
@@ -28,6 +39,41 @@ public abstract class Event {
      */
     public Event(String eventId, String title, String description,
                  LocalDateTime startTime, int durationMinutes, String detail) {
+        this(eventId, title, description, startTime, durationMinutes, detail, null);
+    }
+
+    /**
+     * Constructs a new Event with its own reminders.
+     *
+     * @param eventId         Unique ID, or null/blank to generate one.
+     * @param title           The event title (non-null).
+     * @param description     Optional description.
+     * @param startTime       The start date and time (non-null).
+     * @param durationMinutes The duration in minutes (must be > 0).
+     * @param detail          Optional detail (e.g., location, course).
+     * @param reminderOffsets Minutes before the start at which to remind (each >= 0),
+     *                        null for the default ({@value #DEFAULT_REMINDER_MINUTES} minutes), or empty for none.
+     */
+    public Event(String eventId, String title, String description,
+                 LocalDateTime startTime, int durationMinutes, String detail, int[] reminderOffsets) {
+        this(eventId, title, description, startTime, durationMinutes, detail, reminderOffsets, null);
+    }
+
+    /**
+     * Constructs a new Event, optionally repeating.
+     *
+     * @param eventId         Unique ID, or null/blank to generate one.
+     * @param title           The event title (non-null).
+     * @param description     Optional description.
+     * @param startTime       The start of the (first) occurrence (non-null).
+     * @param durationMinutes The duration of each occurrence in minutes (must be > 0).
+     * @param detail          Optional detail (e.g., location, course).
+     * @param reminderOffsets Minutes before each start at which to remind (each >= 0),
+     *                        null for the default ({@value #DEFAULT_REMINDER_MINUTES} minutes), or empty for none.
+     * @param recurrence      How the event repeats, or null for a one-off event.
+     */
+    public Event(String eventId, String title, String description, LocalDateTime startTime,
+                 int durationMinutes, String detail, int[] reminderOffsets, RecurrenceRule recurrence) {
 
         if (title == null || title.isBlank()) {
             throw new IllegalArgumentException("Title cannot be null or blank.");
@@ -45,6 +91,25 @@ public abstract class Event {
         this.startTime = startTime;
         this.durationMinutes = durationMinutes;
         this.detail = detail;
+        this.reminderOffsets = normalizeReminderOffsets(reminderOffsets);
+        this.recurrence = recurrence;
+    }
+
+    // Sorts offsets largest (earliest reminder) first, drops duplicates and shares the default
+    private static int[] normalizeReminderOffsets(int[] offsets) {
+        if (offsets == null) {
+            return DEFAULT_REMINDER_OFFSETS;
+        }
+        int[] sorted = Arrays.stream(offsets).distinct().sorted().toArray();
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("Reminder offsets cannot be negative.");
+        }
+        for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            int tmp = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = tmp;
+        }
+        return Arrays.equals(sorted, DEFAULT_REMINDER_OFFSETS) ? DEFAULT_REMINDER_OFFSETS : sorted;
     }
 
     public String getEventId() {
@@ -77,6 +142,36 @@ public abstract class Event {
         return Objects.requireNonNullElse(detail, "");
     }
 
+    /**
+     * Gets the reminder offsets, in minutes before the start, largest (earliest reminder) first.
+     *
+     * @return A copy of the offsets; empty if the event has no reminders.
+     */
+    public int[] getReminderOffsets() {
+        return reminderOffsets.clone();
+    }
+
+    /**
+     * @return true if the event uses the default reminder ({@value #DEFAULT_REMINDER_MINUTES} minutes before the start).
+     */
+    public boolean hasDefaultReminders() {
+        return reminderOffsets == DEFAULT_REMINDER_OFFSETS;
+    }
+
+    /**
+     * Gets the recurrence rule. Occurrences of a recurring event returned by range
+     * queries carry the series' rule and ID, with their own start time.
+     *
+     * @return The rule, or null for a one-off event.
+     */
+    public RecurrenceRule getRecurrence() {
+        return recurrence;
+    }
+
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
     /**
      * Gets the type of event (e.g., "Appointment", "Deadline").
      * Used for serialization.
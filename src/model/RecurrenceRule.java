@@ -0,0 +1,322 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Describes how an event repeats: every {@code interval} days, weeks or months from
+ * the event's start, optionally limited by a count or an end time, minus exception dates.
+ * <p>
+ * Occurrences are computed arithmetically from their index, so a rule never has to be
+ * expanded beyond the window being looked at. Monthly rules keep the start's day of
+ * the month, clamped to the last day of shorter months (Jan 31 repeats on Feb 28/29).
+ * As in iCalendar, the count includes occurrences later removed by exceptions.
+ * <p>
+ * The text form ({@link #toString()} / {@link #parse(String)}) uses iCalendar RRULE
+ * syntax ({@code FREQ}, {@code INTERVAL}, {@code COUNT}, {@code UNTIL}), with the
+ * exception dates appended as {@code EXDATE=yyyyMMdd,...}.
+ */
+public final class RecurrenceRule {
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int count; // 0 for no limit
+    private final LocalDateTime until; // Inclusive latest start, or null
+    private final NavigableSet<LocalDate> exceptions;
+
+    /**
+     * @param frequency  The unit of repetition (non-null).
+     * @param interval   Repeat every this many units (must be > 0).
+     * @param count      Total number of occurrences, or 0 for no limit.
+     * @param until      Latest allowed occurrence start, or null for no limit.
+     * @param exceptions Dates on which an occurrence is skipped, or null for none.
+     */
+    public RecurrenceRule(Frequency frequency, int interval, int count, LocalDateTime until,
+                          Collection<LocalDate> exceptions) {
+        if (frequency == null) {
+            throw new IllegalArgumentException("Frequency cannot be null.");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative.");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.exceptions = exceptions == null || exceptions.isEmpty() ? Collections.emptyNavigableSet()
+                : Collections.unmodifiableNavigableSet(new TreeSet<>(exceptions));
+    }
+
+    public RecurrenceRule(Frequency frequency, int interval, int count, LocalDateTime until) {
+        this(frequency, interval, count, until, null);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return The total number of occurrences, or 0 for no limit.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The latest allowed occurrence start, or null for no limit.
+     */
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    /**
+     * @return The dates on which an occurrence is skipped, in ascending order.
+     */
+    public NavigableSet<LocalDate> getExceptions() {
+        return exceptions;
+    }
+
+    /**
+     * @return A copy of this rule that also skips the occurrence on {@code date}.
+     */
+    public RecurrenceRule withException(LocalDate date) {
+        TreeSet<LocalDate> more = new TreeSet<>(exceptions);
+        more.add(date);
+        return new RecurrenceRule(frequency, interval, count, until, more);
+    }
+
+    /**
+     * @return true if the occurrences stop at some point (a count or an end time).
+     */
+    public boolean isBounded() {
+        return count > 0 || until != null;
+    }
+
+    /**
+     * Computes the n-th (0-based) occurrence start, ignoring limits and exceptions.
+     */
+    public LocalDateTime occurrence(LocalDateTime seriesStart, long n) {
+        switch (frequency) {
+            case DAILY: return seriesStart.plusDays(n * interval);
+            case WEEKLY: return seriesStart.plusWeeks(n * interval);
+            default: return seriesStart.plusMonths(n * interval);
+        }
+    }
+
+    /**
+     * @return The index of the last occurrence allowed by the count and end time,
+     *         {@link Long#MAX_VALUE} if unbounded, or -1 if there are none.
+     */
+    public long lastIndex(LocalDateTime seriesStart) {
+        long last = count > 0 ? count - 1 : Long.MAX_VALUE;
+        if (until != null) {
+            last = Math.min(last, firstIndexEndingAfter(seriesStart, 0, until) - 1);
+        }
+        return last;
+    }
+
+    /**
+     * @return The start of the last occurrence (before exceptions), or null if unbounded or empty.
+     */
+    public LocalDateTime lastOccurrence(LocalDateTime seriesStart) {
+        long last = lastIndex(seriesStart);
+        return last < 0 || last == Long.MAX_VALUE ? null : occurrence(seriesStart, last);
+    }
+
+    /**
+     * @return true if an occurrence starting at {@code occurrenceStart} is skipped.
+     */
+    public boolean isException(LocalDateTime occurrenceStart) {
+        return !exceptions.isEmpty() && exceptions.contains(occurrenceStart.toLocalDate());
+    }
+
+    /**
+     * Visits, in order, the start of every occurrence that overlaps [from, to),
+     * respecting the limits and skipping exceptions. Only those occurrences are computed.
+     *
+     * @param visitor Returns false to stop early.
+     * @return false if the visitor stopped early.
+     */
+    public boolean forEachOccurrence(LocalDateTime seriesStart, int durationMinutes,
+                                     LocalDateTime from, LocalDateTime to, Predicate<LocalDateTime> visitor) {
+        long last = lastIndex(seriesStart);
+        for (long n = firstIndexEndingAfter(seriesStart, durationMinutes, from); n <= last; n++) {
+            LocalDateTime start = occurrence(seriesStart, n);
+            if (!start.isBefore(to)) {
+                break;
+            }
+            if (!isException(start) && !visitor.test(start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The start of the first occurrence overlapping [from, to), or null if none does.
+     */
+    public LocalDateTime firstOccurrenceOverlapping(LocalDateTime seriesStart, int durationMinutes,
+                                                    LocalDateTime from, LocalDateTime to) {
+        LocalDateTime[] found = new LocalDateTime[1];
+        forEachOccurrence(seriesStart, durationMinutes, from, to, start -> {
+            found[0] = start;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * @return The start of the first occurrence starting after {@code time}, or null if none does.
+     */
+    public LocalDateTime nextOccurrenceAfter(LocalDateTime seriesStart, LocalDateTime time) {
+        long last = lastIndex(seriesStart);
+        for (long n = firstIndexEndingAfter(seriesStart, 0, time); n <= last; n++) {
+            LocalDateTime start = occurrence(seriesStart, n);
+            if (!isException(start)) {
+                return start;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the smallest n >= 0 whose occurrence (lasting {@code durationMinutes}) ends after {@code time}.
+     */
+    private long firstIndexEndingAfter(LocalDateTime seriesStart, int durationMinutes, LocalDateTime time) {
+        LocalDateTime latestStart = time.minusMinutes(durationMinutes); // Need start > latestStart
+        if (latestStart.isBefore(seriesStart)) {
+            return 0;
+        }
+        long n;
+        if (frequency == Frequency.MONTHLY) {
+            // Estimate from whole months, then step (clamped days can land a little early)
+            long months = ChronoUnit.MONTHS.between(seriesStart.withDayOfMonth(1), latestStart.withDayOfMonth(1));
+            n = Math.max(0, months / interval - 1);
+        } else {
+            long stepMinutes = (frequency == Frequency.DAILY ? 1440L : 7 * 1440L) * interval;
+            n = ChronoUnit.MINUTES.between(seriesStart, latestStart) / stepMinutes;
+        }
+        while (!occurrence(seriesStart, n).isAfter(latestStart)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Parses the text form written by {@link #toString()}.
+     *
+     * @throws IllegalArgumentException If the text isn't a valid rule.
+     */
+    public static RecurrenceRule parse(String text) {
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        LocalDateTime until = null;
+        TreeSet<LocalDate> exceptions = new TreeSet<>();
+        try {
+            for (String part : text.trim().split(";")) {
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Bad recurrence rule part: " + part);
+                }
+                String value = part.substring(eq + 1);
+                switch (part.substring(0, eq).toUpperCase()) {
+                    case "FREQ": frequency = Frequency.valueOf(value.toUpperCase()); break;
+                    case "INTERVAL": interval = Integer.parseInt(value); break;
+                    case "COUNT": count = Integer.parseInt(value); break;
+                    case "UNTIL":
+                        until = value.length() == 8 ? LocalDate.parse(value, DATE_FORMAT).atTime(23, 59)
+                                : LocalDateTime.parse(value.endsWith("Z") ? value.substring(0, value.length() - 1)
+                                : value, UNTIL_FORMAT);
+                        break;
+                    case "EXDATE":
+                        for (String date : value.split(",")) {
+                            if (!date.isBlank()) {
+                                exceptions.add(LocalDate.parse(date.trim(), DATE_FORMAT));
+                            }
+                        }
+                        break;
+                    default:
+                        // Parts we don't support (BYDAY etc.) are ignored
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Bad recurrence rule '" + text + "': " + e.getMessage(), e);
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence rule has no FREQ: " + text);
+        }
+        return new RecurrenceRule(frequency, interval, count, until, exceptions);
+    }
+
+    /**
+     * @return The rule in iCalendar RRULE syntax, without exceptions.
+     */
+    public String toRRule() {
+        StringBuilder sb = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            sb.append(";INTERVAL=").append(interval);
+        }
+        if (count > 0) {
+            sb.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            sb.append(";UNTIL=").append(until.format(UNTIL_FORMAT));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RecurrenceRule that = (RecurrenceRule) o;
+        return interval == that.interval && count == that.count && frequency == that.frequency
+                && Objects.equals(until, that.until) && exceptions.equals(that.exceptions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval, count, until, exceptions);
+    }
+
+    /**
+     * @return The RRULE text plus {@code ;EXDATE=...} if there are exceptions.
+     */
+    @Override
+    public String toString() {
+        if (exceptions.isEmpty()) {
+            return toRRule();
+        }
+        StringBuilder sb = new StringBuilder(toRRule()).append(";EXDATE=");
+        boolean first = true;
+        for (LocalDate date : exceptions) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(date.format(DATE_FORMAT));
+        }
+        return sb.toString();
+    }
+}
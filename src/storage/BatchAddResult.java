@@ -0,0 +1,64 @@
+package storage;
+
+import model.Event;
+
+import java.util.List;
+
+/**
+ * Per-event outcome of {@link CalendarStorage#addEvents}: which events were added
+ * and, for each one that wasn't, what it conflicted with.
+ */
+public final class BatchAddResult {
+
+    /**
+     * An event that was not added, with the events it conflicts with.
+     */
+    public static final class Rejection {
+
+        private final Event event;
+        private final List<Event> conflictingEvents;
+
+        public Rejection(Event event, List<Event> conflictingEvents) {
+            this.event = event;
+            this.conflictingEvents = conflictingEvents;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        /**
+         * @return Existing events, or events added earlier in the same batch, that the event overlaps.
+         */
+        public List<Event> getConflictingEvents() {
+            return conflictingEvents;
+        }
+    }
+
+    private final List<Event> added;
+    private final List<Rejection> rejected;
+
+    public BatchAddResult(List<Event> added, List<Rejection> rejected) {
+        this.added = added;
+        this.rejected = rejected;
+    }
+
+    /**
+     * @return The events that were added, in the order they were given.
+     */
+    public List<Event> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return The events that were skipped, in the order they were given.
+     */
+    public List<Rejection> getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchAddResult{added=" + added.size() + ", rejected=" + rejected.size() + "}";
+    }
+}
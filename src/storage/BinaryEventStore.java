@@ -0,0 +1,324 @@
+package storage;
+
+import model.Appointment;
+import model.Deadline;
+import model.Event;
+import model.RecurrenceRule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary snapshot format for the event set, loaded through a memory-mapped file.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   header   magic "CALY" (int), version (short), reserved (short),
+ *            record count (int), string table offset (long)
+ *   records  fixed 40 bytes each: start in epoch minutes (long), duration (int),
+ *            type (byte) + 3 pad bytes, then string-table indexes (int) of
+ *            eventId, title, description and detail, then the reminder-table
+ *            index (int), or -1 for the default reminders, then the string-table
+ *            index (int) of the recurrence rule's text, or -1 for a one-off event
+ *   strings  count (int), then per string: UTF-8 length (int) and bytes
+ *   reminders count (int), then per set: offset count (int) and offsets (int)
+ * </pre>
+ * Strings and reminder sets are de-duplicated, so repeated titles, locations and
+ * courses are stored (and, after loading, held in memory) once. Timestamps are
+ * minute-granular. Version 1 files (32-byte records, no reminder table) and version 2
+ * files (36-byte records, no recurrence) are still read.
+ */
+final class BinaryEventStore {
+
+    static final int MAGIC = 0x43414C59; // "CALY"
+    private static final short VERSION = 3;
+    private static final short VERSION_WITHOUT_RECURRENCE = 2;
+    private static final short VERSION_WITHOUT_REMINDERS = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 8;
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 4 * 4 + 4 + 4;
+    private static final int RECORD_SIZE_WITHOUT_RECURRENCE = 8 + 4 + 4 + 4 * 4 + 4;
+    private static final int RECORD_SIZE_WITHOUT_REMINDERS = 8 + 4 + 4 + 4 * 4;
+    private static final int DEFAULT_REMINDERS = -1;
+    private static final int NO_RECURRENCE = -1;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private BinaryEventStore() {
+    }
+
+    /**
+     * @return true if the file starts with the binary format's magic number.
+     */
+    static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until 4 bytes or EOF
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Maps the file and hands each event to {@code sink} in file (start time) order.
+     *
+     * @return The number of events read.
+     * @throws IOException If the file can't be read, or is truncated or corrupt.
+     */
+    static int read(Path file, Consumer<Event> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binary event file too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary event file: " + file);
+            }
+            short version = buf.getShort(4);
+            if (version != VERSION && version != VERSION_WITHOUT_RECURRENCE && version != VERSION_WITHOUT_REMINDERS) {
+                throw new IOException("Unsupported binary event file version " + version);
+            }
+            boolean hasReminders = version != VERSION_WITHOUT_REMINDERS;
+            boolean hasRecurrence = version == VERSION;
+            int recordSize = hasRecurrence ? RECORD_SIZE
+                    : hasReminders ? RECORD_SIZE_WITHOUT_RECURRENCE : RECORD_SIZE_WITHOUT_REMINDERS;
+            int count = buf.getInt(8);
+            long stringsOffset = buf.getLong(12);
+            if (count < 0 || stringsOffset != HEADER_SIZE + (long) count * recordSize || stringsOffset > size) {
+                throw new IOException("Corrupt binary event file header: " + file);
+            }
+
+            ByteBuffer tables = buf.duplicate();
+            tables.position((int) stringsOffset);
+            String[] strings = readStrings(tables);
+            int[][] reminderSets = hasReminders ? readReminderSets(tables) : new int[0][];
+            for (int i = 0; i < count; i++) {
+                int at = HEADER_SIZE + i * recordSize;
+                long startMinutes = buf.getLong(at);
+                int duration = buf.getInt(at + 8);
+                byte type = buf.get(at + 12);
+                String id = string(strings, buf.getInt(at + 16));
+                String title = string(strings, buf.getInt(at + 20));
+                String description = string(strings, buf.getInt(at + 24));
+                String detail = string(strings, buf.getInt(at + 28));
+                int[] reminders = hasReminders ? reminderSet(reminderSets, buf.getInt(at + 32)) : null;
+                RecurrenceRule rule = hasRecurrence ? recurrence(strings, buf.getInt(at + 36)) : null;
+                LocalDateTime start = EventTable.fromMinutes(startMinutes);
+
+                Event event;
+                try {
+                    if (type == EventTable.TYPE_APPOINTMENT) {
+                        event = new Appointment(id, title, description, start, duration, detail, reminders, rule);
+                    } else if (type == EventTable.TYPE_DEADLINE) {
+                        event = new Deadline(id, title, description, start, duration, detail, reminders, rule);
+                    } else {
+                        throw new IOException("Unknown event type " + type + " in record " + i);
+                    }
+                } catch (IllegalArgumentException e) { // A field out of range, such as the duration
+                    throw new IOException("Bad record " + i + ": " + e.getMessage(), e);
+                }
+                sink.accept(event);
+            }
+            return count;
+        }
+    }
+
+    // Reads the string table at the buffer's position, leaving it just past the table
+    private static String[] readStrings(ByteBuffer table) throws IOException {
+        int count = readLength(table, 4, "string table"); // Each string takes at least its length
+        String[] strings = new String[count];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = readLength(table, 1, "string table");
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            table.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[][] readReminderSets(ByteBuffer table) throws IOException {
+        int count = readLength(table, 4, "reminder table");
+        int[][] sets = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int length = readLength(table, 4, "reminder table");
+            sets[i] = new int[length];
+            table.asIntBuffer().get(sets[i]);
+            table.position(table.position() + length * 4);
+        }
+        return sets;
+    }
+
+    // Reads a count of items that take at least bytesEach, checking they fit in what is left of the file
+    private static int readLength(ByteBuffer table, int bytesEach, String what) throws IOException {
+        if (table.remaining() < 4) {
+            throw new IOException("Truncated binary event " + what);
+        }
+        int length = table.getInt();
+        if (length < 0 || length > table.remaining() / bytesEach) {
+            throw new IOException("Corrupt binary event " + what + ": length " + length
+                    + " with " + table.remaining() + " bytes left");
+        }
+        return length;
+    }
+
+    private static int[] reminderSet(int[][] sets, int ref) throws IOException {
+        if (ref == DEFAULT_REMINDERS) {
+            return null;
+        }
+        if (ref < 0 || ref >= sets.length) {
+            throw new IOException("Bad reminder set reference " + ref);
+        }
+        return sets[ref];
+    }
+
+    private static RecurrenceRule recurrence(String[] strings, int ref) throws IOException {
+        if (ref == NO_RECURRENCE) {
+            return null;
+        }
+        try {
+            return RecurrenceRule.parse(string(strings, ref));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static String string(String[] strings, int ref) throws IOException {
+        if (ref < 0 || ref >= strings.length) {
+            throw new IOException("Bad string reference " + ref);
+        }
+        return strings[ref];
+    }
+
+    /**
+     * Writes the events to a temp file and atomically replaces {@code file} with it.
+     * Records are streamed; only the de-duplicated string table is held in memory.
+     */
+    static void write(Path file, Iterable<Event> events) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<List<Integer>, Integer> reminderSetIds = new HashMap<>();
+        List<int[]> reminderSets = new ArrayList<>();
+        int count = 0;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buf.position(HEADER_SIZE); // Header is filled in once the counts are known
+
+            for (Event e : events) {
+                if (buf.remaining() < RECORD_SIZE) {
+                    drain(channel, buf);
+                }
+                buf.putLong(EventTable.toMinutes(e.getStartTime()));
+                buf.putInt(e.getDurationMinutes());
+                buf.put(typeCode(e));
+                buf.put((byte) 0).put((byte) 0).put((byte) 0);
+                buf.putInt(intern(e.getEventId(), stringIds, strings));
+                buf.putInt(intern(e.getTitle(), stringIds, strings));
+                buf.putInt(intern(e.getDescription(), stringIds, strings));
+                buf.putInt(intern(e.getDetail(), stringIds, strings));
+                buf.putInt(e.hasDefaultReminders() ? DEFAULT_REMINDERS
+                        : internReminders(e.getReminderOffsets(), reminderSetIds, reminderSets));
+                buf.putInt(e.isRecurring() ? intern(e.getRecurrence().toString(), stringIds, strings) : NO_RECURRENCE);
+                count++;
+            }
+
+            drain(channel, buf);
+            buf.putInt(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                if (buf.remaining() < 4) {
+                    drain(channel, buf);
+                }
+                buf.putInt(bytes.length);
+                for (int written = 0; written < bytes.length; ) {
+                    if (!buf.hasRemaining()) {
+                        drain(channel, buf);
+                    }
+                    int n = Math.min(buf.remaining(), bytes.length - written);
+                    buf.put(bytes, written, n);
+                    written += n;
+                }
+            }
+            if (buf.remaining() < 4) {
+                drain(channel, buf);
+            }
+            buf.putInt(reminderSets.size());
+            for (int[] set : reminderSets) {
+                if (buf.remaining() < 4) {
+                    drain(channel, buf);
+                }
+                buf.putInt(set.length);
+                for (int offset : set) {
+                    if (buf.remaining() < 4) {
+                        drain(channel, buf);
+                    }
+                    buf.putInt(offset);
+                }
+            }
+            drain(channel, buf);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putInt(count).putLong(HEADER_SIZE + (long) count * RECORD_SIZE);
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte typeCode(Event e) throws IOException {
+        try {
+            return EventTable.typeCode(e);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Event type not supported by the binary format: " + e.getType(), ex);
+        }
+    }
+
+    private static int intern(String s, Map<String, Integer> ids, List<String> strings) {
+        return ids.computeIfAbsent(s, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    private static int internReminders(int[] offsets, Map<List<Integer>, Integer> ids, List<int[]> sets) {
+        List<Integer> key = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            key.add(offset);
+        }
+        return ids.computeIfAbsent(key, k -> {
+            sets.add(offsets);
+            return sets.size() - 1;
+        });
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
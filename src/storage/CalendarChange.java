@@ -0,0 +1,126 @@
+package storage;
+
+import model.Event;
+import model.RecurrenceRule;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change to the calendar, as delivered to a {@link CalendarChangeListener}: an event
+ * added, updated (replaced by a new version with the same ID) or removed, with the
+ * version before and after. For a recurring event the versions are whole series.
+ */
+public final class CalendarChange {
+
+    public enum Kind {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+
+    private final Kind kind;
+    private final Event oldEvent;
+    private final Event newEvent;
+    private final long version;
+
+    CalendarChange(Event oldEvent, Event newEvent, long version) {
+        this.kind = oldEvent == null ? Kind.ADDED : newEvent == null ? Kind.REMOVED : Kind.UPDATED;
+        this.oldEvent = oldEvent;
+        this.newEvent = newEvent;
+        this.version = version;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEventId() {
+        return newEvent != null ? newEvent.getEventId() : oldEvent.getEventId();
+    }
+
+    /**
+     * @return The event before the change, or null if it was added.
+     */
+    public Event getOldEvent() {
+        return oldEvent;
+    }
+
+    /**
+     * @return The event after the change, or null if it was removed.
+     */
+    public Event getNewEvent() {
+        return newEvent;
+    }
+
+    /**
+     * @return The data version that includes this change; see {@link CalendarStorage#getVersion()}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The start of the old version, or null if the event was added.
+     */
+    public LocalDateTime getOldStart() {
+        return oldEvent == null ? null : oldEvent.getStartTime();
+    }
+
+    /**
+     * @return The end of the old version (for a recurring event, of its last occurrence;
+     *         {@link LocalDateTime#MAX} if it never stops), or null if the event was added.
+     */
+    public LocalDateTime getOldEnd() {
+        return oldEvent == null ? null : spanEnd(oldEvent);
+    }
+
+    /**
+     * @return The start of the new version, or null if the event was removed.
+     */
+    public LocalDateTime getNewStart() {
+        return newEvent == null ? null : newEvent.getStartTime();
+    }
+
+    /**
+     * @return The end of the new version (for a recurring event, of its last occurrence;
+     *         {@link LocalDateTime#MAX} if it never stops), or null if the event was removed.
+     */
+    public LocalDateTime getNewEnd() {
+        return newEvent == null ? null : spanEnd(newEvent);
+    }
+
+    /**
+     * @return true if the change shows in [from, to): the old or the new version, or one of
+     *         their occurrences, overlaps it.
+     */
+    public boolean affects(LocalDateTime from, LocalDateTime to) {
+        return overlaps(oldEvent, from, to) || overlaps(newEvent, from, to);
+    }
+
+    private static boolean overlaps(Event e, LocalDateTime from, LocalDateTime to) {
+        if (e == null) {
+            return false;
+        }
+        if (!e.isRecurring()) {
+            return e.getStartTime().isBefore(to) && e.getEndTime().isAfter(from);
+        }
+        return e.getRecurrence().firstOccurrenceOverlapping(e.getStartTime(), e.getDurationMinutes(), from, to) != null;
+    }
+
+    private static LocalDateTime spanEnd(Event e) {
+        RecurrenceRule rule = e.getRecurrence();
+        if (rule == null) {
+            return e.getEndTime();
+        }
+        if (!rule.isBounded()) {
+            return LocalDateTime.MAX;
+        }
+        LocalDateTime last = rule.lastOccurrence(e.getStartTime());
+        return last == null ? e.getStartTime() : last.plusMinutes(e.getDurationMinutes());
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarChange{" + kind + " " + getEventId() + ", version=" + version + "}";
+    }
+}
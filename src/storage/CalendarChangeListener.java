@@ -0,0 +1,20 @@
+package storage;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to a {@link CalendarStorage}, see
+ * {@link CalendarStorage#addChangeListener(CalendarChangeListener)}.
+ */
+public interface CalendarChangeListener {
+
+    /**
+     * Called on the storage's change-notification thread, never under the storage lock,
+     * once per write in the order the writes were made. A batch write's changes come in
+     * one call. The calendar may have changed again by the time this runs; each change's
+     * {@link CalendarChange#getVersion() version} tells which write it belongs to.
+     *
+     * @param changes The changes made by one write, in the order they were applied.
+     */
+    void calendarChanged(List<CalendarChange> changes);
+}
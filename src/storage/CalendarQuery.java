@@ -0,0 +1,253 @@
+package storage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable description of an event query, run by {@link CalendarStorage#query(CalendarQuery)}.
+ * Every criterion is optional; an empty query matches every event.
+ * <p>
+ * Build one with {@link #builder()}:
+ * <pre>
+ * CalendarQuery q = CalendarQuery.builder()
+ *         .between(monday, friday)
+ *         .type("Appointment")
+ *         .text("review")
+ *         .limit(20)
+ *         .build();
+ * </pre>
+ */
+public final class CalendarQuery {
+
+    /**
+     * Result order.
+     */
+    public enum Sort {
+        START,
+        START_DESCENDING,
+        /** By title ignoring case, then by start. */
+        TITLE
+    }
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String type;
+    private final String detail;
+    private final String text;
+    private final int minDuration;
+    private final int maxDuration;
+    private final int offset;
+    private final int limit;
+    private final Sort sort;
+
+    private CalendarQuery(Builder b) {
+        this.from = b.from;
+        this.to = b.to;
+        this.type = b.type;
+        this.detail = b.detail;
+        this.text = b.text;
+        this.minDuration = b.minDuration;
+        this.maxDuration = b.maxDuration;
+        this.offset = b.offset;
+        this.limit = b.limit;
+        this.sort = b.sort;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The start of the time range, or null if open.
+     */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /**
+     * @return The end (exclusive) of the time range, or null if open.
+     */
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    /**
+     * @return true if both ends of the time range are set. Only then are recurring
+     *         events expanded into their occurrences.
+     */
+    public boolean isBounded() {
+        return from != null && to != null;
+    }
+
+    /**
+     * @return The required {@link model.Event#getType()}, or null for any.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The required detail (location or course), or null for any.
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * @return The words to match, or null for no text criterion.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public int getMinDuration() {
+        return minDuration;
+    }
+
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarQuery{from=" + from + ", to=" + to + ", type=" + type + ", detail=" + detail
+                + ", text=" + text + ", duration=[" + minDuration + ", " + maxDuration + "], offset=" + offset
+                + ", limit=" + limit + ", sort=" + sort + "}";
+    }
+
+    public static final class Builder {
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private String type;
+        private String detail;
+        private String text;
+        private int minDuration = 0;
+        private int maxDuration = Integer.MAX_VALUE;
+        private int offset = 0;
+        private int limit = Integer.MAX_VALUE;
+        private Sort sort = Sort.START;
+
+        private Builder() {
+        }
+
+        /**
+         * Only events overlapping [from, to). Within the range each occurrence of a
+         * recurring event is a separate result.
+         */
+        public Builder between(LocalDateTime from, LocalDateTime to) {
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("Range start must be before its end.");
+            }
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Only events ending after {@code from}. A recurring event is matched once, as its series.
+         */
+        public Builder from(LocalDateTime from) {
+            this.from = from;
+            return this;
+        }
+
+        /**
+         * Only events starting before {@code to}. A recurring event is matched once, as its series.
+         */
+        public Builder to(LocalDateTime to) {
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Only events of this type: "Appointment" or "Deadline".
+         */
+        public Builder type(String type) {
+            if (!"Appointment".equals(type) && !"Deadline".equals(type)) {
+                throw new IllegalArgumentException("Unknown event type: " + type);
+            }
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Only events whose detail (location or course) equals this, ignoring case.
+         */
+        public Builder detail(String detail) {
+            this.detail = detail;
+            return this;
+        }
+
+        /**
+         * Only events matching these words, as for {@link CalendarStorage#search(String)}.
+         */
+        public Builder text(String text) {
+            this.text = text;
+            return this;
+        }
+
+        /**
+         * Only events lasting at least this many minutes.
+         */
+        public Builder minDuration(int minutes) {
+            this.minDuration = minutes;
+            return this;
+        }
+
+        /**
+         * Only events lasting at most this many minutes.
+         */
+        public Builder maxDuration(int minutes) {
+            this.maxDuration = minutes;
+            return this;
+        }
+
+        /**
+         * Skips this many results.
+         */
+        public Builder offset(int offset) {
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offset must not be negative.");
+            }
+            this.offset = offset;
+            return this;
+        }
+
+        /**
+         * Returns at most this many results.
+         */
+        public Builder limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative.");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder sort(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        public CalendarQuery build() {
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new IllegalArgumentException("Range start must be before its end.");
+            }
+            if (minDuration > maxDuration) {
+                throw new IllegalArgumentException("Minimum duration exceeds the maximum.");
+            }
+            return new CalendarQuery(this);
+        }
+    }
+}
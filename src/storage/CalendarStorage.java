@@ -1,202 +1,1024 @@
 package storage;
 
-import model.Appointment;
 import model.Event;
+import model.RecurrenceRule;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Manages event storage, caching, persistence to JSON, and conflict detection.
+ * Manages event storage, caching, persistence to JSON or binary snapshots (optionally journaled),
+ * and conflict detection.
+ * <p>
+ * Writers serialize on this object's monitor and publish an immutable {@link EventSnapshot}
+ * after every change. Read methods take no lock: they query the latest published snapshot,
+ * so a slow write never stalls them.
  */
-public class CalendarStorage {
+public class CalendarStorage implements AutoCloseable {
 
-    private final Map<String, Event> eventCache = new ConcurrentHashMap<>();
-    private final Set<String> remindersFired = Collections.synchronizedSet(new HashSet<>());
-    private final Path storageFile = Paths.get("events.json");
-    private Timer reminderTimer;
+    private static final int SUGGESTION_HORIZON_MINUTES = 24 * 60;
+    private static final int FREE_SLOT_SEARCH_DAYS = 31;
+    private static final long COMPACT_MAX_JOURNAL_BYTES = 8L * 1024 * 1024;
+    private static final double COMPACT_MAX_RECORD_RATIO = 1.0;
+    private static final long COMPACT_CHECK_INTERVAL_MS = 30_000;
+
+    // Garbage rows tolerated before the table is rebuilt from its live rows
+    private static final int TABLE_MIN_GARBAGE = 1024;
+
+    // Batches bigger than this (or an eighth of the events) rebuild the text index instead of updating it
+    private static final int TEXT_MIN_REINDEX = 1024;
+
+    // Events read from an iCalendar file before they are added as one batch
+    private static final int IMPORT_BATCH_SIZE = 4096;
+
+    // How far past a new series' start (against another series, the later of the two starts) conflicts are checked
+    private static final long SERIES_CONFLICT_HORIZON_MINUTES = 2 * 366 * 24 * 60;
+
+    // Writer state, guarded by this. Readers only ever see published snapshots.
+    private EventTable table = new EventTable();
+    private IntervalIndex index = IntervalIndex.EMPTY; // One-off events
+    private IntervalIndex seriesIndex = IntervalIndex.EMPTY; // Recurring events, by their whole span
+    private TextIndex text = TextIndex.EMPTY;
+    private boolean textDeferred; // While set, putEvent leaves 'text' alone; it is rebuilt in one pass after
+    private volatile EventSnapshot snapshot = EventSnapshot.EMPTY;
+    private final Path storageFile;
+    private final SnapshotFormat snapshotFormat;
+    private final PersistenceMode persistenceMode;
+    private final EventJournal journal;
+    private final JournalCompactor compactor;
+    private final WriteBehindPersister writeBehind; // null when writes are synchronous
+    private volatile boolean loadFailed; // Then the snapshot file is never overwritten, so nothing in it is lost
+    private long syncMutations;
+    private long syncFlushes;
+    private ReminderScheduler reminders; // null until the reminder service starts
+    private ReminderDispatcher dispatcher;
+    private final ChangeNotifier notifier = new ChangeNotifier();
+    private List<CalendarChange> changes = new ArrayList<>(); // Recorded since the last publish, if anyone listens
 
     /**
-     * Creates a new CalendarStorage instance.
+     * Creates a new CalendarStorage instance backed by {@code events.json},
+     * rewriting the whole file on every change.
      * Loads events from the storage file, or creates the file if it doesn't exist.
      */
     public CalendarStorage() {
+        this(Paths.get("events.json"), PersistenceMode.SNAPSHOT);
+    }
+
+    /**
+     * Creates a new CalendarStorage instance that writes every mutation before returning.
+     *
+     * @param storageFile     The snapshot file.
+     * @param persistenceMode How mutations are written to disk.
+     */
+    public CalendarStorage(Path storageFile, PersistenceMode persistenceMode) {
+        this(storageFile, persistenceMode, null);
+    }
+
+    /**
+     * Creates a new CalendarStorage instance.
+     * Loads events from the storage file (plus its journal, if any),
+     * or creates the file if it doesn't exist.
+     * <p>
+     * The snapshot is written as JSON, or in the compact binary format when the file name
+     * ends with {@value SnapshotFormat#BINARY_EXTENSION}. Existing files are read in
+     * whichever format they contain, so renaming converts on the next write.
+     *
+     * @param storageFile       The snapshot file.
+     * @param persistenceMode   How mutations are written to disk.
+     * @param writeBehindPolicy Batch writes on a background thread, or null to write synchronously.
+     *                          Call {@link #flush()} or {@link #close()} to make pending writes durable.
+     */
+    public CalendarStorage(Path storageFile, PersistenceMode persistenceMode, WriteBehindPolicy writeBehindPolicy) {
+        this.storageFile = storageFile;
+        this.snapshotFormat = SnapshotFormat.forFile(storageFile);
+        this.persistenceMode = persistenceMode;
+        this.journal = new EventJournal(storageFile.resolveSibling(storageFile.getFileName() + ".journal"));
+        this.compactor = new JournalCompactor(storageFile, snapshotFormat, journal, this::liveEventCount,
+                COMPACT_MAX_JOURNAL_BYTES, COMPACT_MAX_RECORD_RATIO);
         loadEvents();
+        this.writeBehind = writeBehindPolicy == null ? null
+                : new WriteBehindPersister(this::flushPending, writeBehindPolicy);
+        if (persistenceMode == PersistenceMode.JOURNAL && !loadFailed) {
+            compactor.start(COMPACT_CHECK_INTERVAL_MS);
+        }
     }
 
     private void loadEvents() {
         synchronized (this) {
+            // Readers see nothing until publish(), so the rows are loaded in place and
+            // dropped again if loading fails, rather than leaving a partial calendar
+            boolean loaded = false;
+            int replayed = 0;
             try {
                 if (!Files.exists(storageFile)) {
-                    Files.writeString(storageFile, "[]");
-                }
-                String json = Files.readString(storageFile);
-                List<Event> events = JsonUtil.deserialize(json);
-                eventCache.clear();
-                for (Event e : events) {
-                    eventCache.put(e.getEventId(), e);
+                    snapshotFormat.write(storageFile, List.of());
                 }
+                textDeferred = true; // Indexed in one pass once everything is loaded
+                SnapshotFormat.readAny(storageFile, this::putEvent);
+                replayed = journal.replay(this::putEvent, this::removeEvent);
+                loaded = true;
             } catch (IOException e) {
-                System.err.println("Failed to load events from file: " + e.getMessage());
+                loadFailed = true;
+                System.err.println("Failed to load events from file: " + e.getMessage()
+                        + "; it will not be overwritten");
                 e.printStackTrace();
+            } finally {
+                if (!loaded) {
+                    table = new EventTable();
+                    index = IntervalIndex.EMPTY;
+                    seriesIndex = IntervalIndex.EMPTY;
+                }
+                textDeferred = false;
+                text = TextIndex.build(table.rows(), index, seriesIndex);
+                publish();
+            }
+            if (replayed > 0 && persistenceMode == PersistenceMode.SNAPSHOT) {
+                // Fold a journal left behind by a JOURNAL-mode run into the snapshot. The
+                // snapshot is written from what was just published, and the journal is
+                // deleted only once that write has succeeded
+                try {
+                    snapshotFormat.write(storageFile, eachEvent());
+                    journal.delete();
+                } catch (IOException e) {
+                    System.err.println("Failed to fold the event journal into " + storageFile + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
             }
         }
     }
 
     private void persistEvents() {
-        synchronized (this) {
+        if (loadFailed) {
+            System.err.println("Not saving events: " + storageFile + " could not be loaded, and saving would replace it");
+            return;
+        }
+        // Streamed in start order, for stable output. Only one thread writes the
+        // snapshot at a time (the caller's, under the lock, or the write-behind thread)
+        try {
+            snapshotFormat.write(storageFile, eachEvent());
+        } catch (IOException e) {
+            System.err.println("Failed to persist events to file: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void persistPut(Event e) {
+        if (persistenceMode == PersistenceMode.JOURNAL) {
             try {
-                List<Event> events = new ArrayList<>(eventCache.values());
-                // Sort for stable output
-                events.sort(Comparator.comparing(Event::getStartTime));
-                String json = JsonUtil.serialize(events);
-                Files.writeString(storageFile, json);
-            } catch (IOException e) {
-                System.err.println("Failed to persist events to file: " + e.getMessage());
-                e.printStackTrace();
+                journal.appendPut(e);
+            } catch (IOException ex) {
+                System.err.println("Failed to journal event " + e.getEventId() + ": " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        }
+        mutationsPersisted(1);
+    }
+
+    // Journals a batch of puts, then persists them with one write
+    private void persistPuts(List<Event> events) {
+        journalPuts(events);
+        mutationsPersisted(events.size());
+    }
+
+    private void journalPuts(List<Event> events) {
+        if (persistenceMode == PersistenceMode.JOURNAL) {
+            for (Event e : events) {
+                try {
+                    journal.appendPut(e);
+                } catch (IOException ex) {
+                    System.err.println("Failed to journal event " + e.getEventId() + ": " + ex.getMessage());
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void persistDelete(String eventId) {
+        if (persistenceMode == PersistenceMode.JOURNAL) {
+            try {
+                journal.appendDelete(eventId);
+            } catch (IOException ex) {
+                System.err.println("Failed to journal deletion of " + eventId + ": " + ex.getMessage());
+                ex.printStackTrace();
             }
         }
+        mutationsPersisted(1);
+    }
+
+    // Called under the lock after each change (of one or more mutations) has been recorded
+    private void mutationsPersisted(int count) {
+        if (writeBehind != null) {
+            writeBehind.mutated(count);
+            return;
+        }
+        syncMutations += count;
+        syncFlushes++;
+        if (persistenceMode == PersistenceMode.SNAPSHOT) {
+            persistEvents();
+        } else {
+            flushJournal(false);
+        }
+    }
+
+    // Write-behind flush action: one snapshot rewrite or one journal group commit per batch
+    private void flushPending() {
+        if (persistenceMode == PersistenceMode.SNAPSHOT) {
+            persistEvents();
+        } else {
+            flushJournal(true);
+        }
+    }
+
+    private void flushJournal(boolean sync) {
+        try {
+            journal.flush(sync);
+        } catch (IOException e) {
+            System.err.println("Failed to flush event journal: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
+    /**
+     * Blocks until every change made so far is on disk.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        } else if (persistenceMode == PersistenceMode.JOURNAL) {
+            flushJournal(true);
+        }
+    }
 
+    /**
+     * @return How many mutations have been persisted and in how many disk writes.
+     */
+    public PersistenceStats getPersistenceStats() {
+        if (writeBehind != null) {
+            return writeBehind.getStats();
+        }
+        synchronized (this) {
+            return new PersistenceStats(syncMutations, syncFlushes);
+        }
+    }
 
-    public synchronized List<Event> getAllEvents() {
-        return new ArrayList<>(eventCache.values());
+    /**
+     * Writes every event to a JSON file, for use by other tools.
+     */
+    public void exportJson(Path file) throws IOException {
+        SnapshotFormat.JSON.write(file, eachEvent());
     }
 
-    public synchronized List<Event> getEventsForDay(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
+    /**
+     * Adds every event from a JSON file as one batch, see {@link #addEvents(Collection)}.
+     *
+     * @return The events that were skipped because they conflict with existing ones.
+     */
+    public List<Event> importJson(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        SnapshotFormat.JSON.read(file, events::add);
+        List<Event> rejected = new ArrayList<>();
+        for (BatchAddResult.Rejection r : addEvents(events).getRejected()) {
+            rejected.add(r.getEvent());
+        }
+        return rejected;
+    }
+
+    /**
+     * Adds every VEVENT from an iCalendar file, see {@link IcsReader} for how events are mapped.
+     * The file is parsed as it is read and added in batches of {@value #IMPORT_BATCH_SIZE}
+     * (see {@link #addEvents(Collection)}), so memory use doesn't grow with the file; each
+     * batch becomes visible as it is added, and the whole import is persisted with one write.
+     * A VEVENT with the UID of one imported before it replaces that event.
+     *
+     * @return The events that were skipped, with what each conflicts with.
+     */
+    public List<BatchAddResult.Rejection> importIcs(Path file) throws IOException {
+        List<BatchAddResult.Rejection> rejected = new ArrayList<>();
+        List<Event> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        Set<String> batchIds = new HashSet<>();
+        int[] added = {0};
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            new IcsReader(reader).readAll(e -> {
+                // An ID may appear once per batch, so a repeated UID starts the next one
+                if (batch.size() == IMPORT_BATCH_SIZE || !batchIds.add(e.getEventId())) {
+                    added[0] += importBatch(batch, rejected);
+                    batch.clear();
+                    batchIds.clear();
+                    batchIds.add(e.getEventId());
+                }
+                batch.add(e);
+            });
+            added[0] += importBatch(batch, rejected);
+        } finally {
+            if (added[0] > 0) { // The batches added before a failure are kept, so persist them too
+                synchronized (this) {
+                    mutationsPersisted(added[0]);
+                }
+            }
+        }
+        return rejected;
+    }
+
+    // Adds one batch of an import, journaling it but leaving the snapshot write to the end
+    private synchronized int importBatch(List<Event> batch, List<BatchAddResult.Rejection> rejected) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BatchAddResult result = putBatch(batch);
+        rejected.addAll(result.getRejected());
+        journalPuts(result.getAdded());
+        return result.getAdded().size();
+    }
+
+    /**
+     * Writes every event to an iCalendar file, recurring events as their rules.
+     */
+    public void exportIcs(Path file) throws IOException {
+        exportIcs(file, LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    /**
+     * Writes the events overlapping [from, to) to an iCalendar file, a recurring event
+     * as its whole series. Events are streamed from the latest snapshot straight to the
+     * file, so memory use doesn't grow with the export; the file is replaced atomically.
+     */
+    public void exportIcs(Path file, LocalDateTime from, LocalDateTime to) throws IOException {
+        EventSnapshot current = snapshot;
+        long fromMinutes = from.equals(LocalDateTime.MIN) ? Long.MIN_VALUE : EventTable.toMinutes(from);
+        long toMinutes = to.equals(LocalDateTime.MAX) ? Long.MAX_VALUE : EventTable.toMinutes(to);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (IcsWriter writer = new IcsWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+            current.forEachEvent(fromMinutes, toMinutes, e -> {
+                try {
+                    writer.write(e);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops background services and makes every pending change durable.
+     */
+    @Override
+    public void close() {
+        ReminderScheduler scheduler;
+        ReminderDispatcher reminderDispatcher;
+        synchronized (this) {
+            scheduler = reminders;
+            reminderDispatcher = dispatcher;
+            reminders = null;
+            dispatcher = null;
+        }
+        if (scheduler != null) {
+            scheduler.close();
+            reminderDispatcher.close();
+        }
+        notifier.close();
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        compactor.shutdown();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close event journal: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Registers a listener for every later change to the calendar. Listeners are called
+     * on one notification thread, in the order the changes were made, so they may take
+     * their time without holding up writers.
+     */
+    public void addChangeListener(CalendarChangeListener listener) {
+        notifier.add(listener);
+    }
+
+    public void removeChangeListener(CalendarChangeListener listener) {
+        notifier.remove(listener);
+    }
+
+    /**
+     * @return A number that increases with every change, for keying caches of derived data.
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * Copies every event into a list at once; for large calendars, walk them with
+     * {@link #openCursor(CalendarQuery, int)} instead.
+     *
+     * @return Every event, sorted by start time. A recurring event appears once, as its series.
+     */
+    public List<Event> getAllEvents() {
+        return snapshot.all();
+    }
+
+    // Every event of the current snapshot in start order, built as it is iterated
+    private Iterable<Event> eachEvent() {
+        QueryPlanner planner = new QueryPlanner(snapshot, CalendarQuery.builder().build());
+        return () -> planner.iterator(Long.MIN_VALUE, Collections.emptySet(), 0, Long.MAX_VALUE);
+    }
+
+    public List<Event> getEventsForDay(LocalDate date) {
         // Event overlaps day if: event.start < endOfDay AND event.end > startOfDay
-        return eventCache.values().stream()
-                .filter(e -> e.getStartTime().isBefore(endOfDay) && e.getEndTime().isAfter(startOfDay))
-                .sorted(Comparator.comparing(Event::getStartTime))
-                .collect(Collectors.toList());
+        return overlapping(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
 
-    public synchronized List<Event> getEventsForWeek(LocalDate startOfWeek) {
-        LocalDateTime start = startOfWeek.atStartOfDay();
-        LocalDateTime end = startOfWeek.plusDays(7).atStartOfDay();
+    public List<Event> getEventsForWeek(LocalDate startOfWeek) {
         // Event overlaps week if: event.start < endOfWeek AND event.end > startOfWeek
-        return eventCache.values().stream()
-                .filter(e -> e.getStartTime().isBefore(end) && e.getEndTime().isAfter(start))
-                .sorted(Comparator.comparing(Event::getStartTime))
-                .collect(Collectors.toList());
+        return overlapping(startOfWeek.atStartOfDay(), startOfWeek.plusDays(7).atStartOfDay());
     }
 
-    public synchronized List<Event> getEventsForMonth(YearMonth month) {
-        LocalDateTime start = month.atDay(1).atStartOfDay();
-        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+    public List<Event> getEventsForMonth(YearMonth month) {
         // Event overlaps month if: event.start < endOfMonth AND event.end > startOfMonth
-        return eventCache.values().stream()
-                .filter(e -> e.getStartTime().isBefore(end) && e.getEndTime().isAfter(start))
-                .sorted(Comparator.comparing(Event::getStartTime))
-                .collect(Collectors.toList());
+        return overlapping(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    /**
+     * Searches every event's title, description and detail (location or course).
+     * The query's words are matched case-insensitively as prefixes of the events'
+     * words, and an event must match all of them.
+     *
+     * @return The matching events, sorted by start time; a recurring event appears once, as its series.
+     */
+    public List<Event> search(String query) {
+        return snapshot.search(query, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #search(String)}, limited to events overlapping [from, to). Each matching
+     * occurrence of a recurring event in the range is returned.
+     */
+    public List<Event> search(String query, LocalDateTime from, LocalDateTime to) {
+        return snapshot.search(query, EventTable.toMinutes(from), EventTable.toMinutes(to));
+    }
+
+    /**
+     * Runs a query against the calendar as it is now. The planner reads the most selective
+     * index first, and events are built only as the stream is consumed, so a limited query
+     * over a large calendar stays cheap. Changes made after the call don't affect the stream.
+     */
+    public Stream<Event> query(CalendarQuery query) {
+        return new QueryPlanner(snapshot, query).run();
+    }
+
+    /**
+     * Opens a cursor over a query's results in start order, reading the calendar as it is now.
+     *
+     * @param query    Must sort by {@link CalendarQuery.Sort#START}.
+     * @param pageSize The most events per page (must be > 0).
+     */
+    public EventCursor openCursor(CalendarQuery query, int pageSize) {
+        if (query.getSort() != CalendarQuery.Sort.START) {
+            throw new IllegalArgumentException("Cursors walk in start order.");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        return new EventCursor(snapshot, new PageToken(query, pageSize, null, new HashSet<>(), 0));
+    }
+
+    /**
+     * Resumes a walk after the position in the token, reading the calendar as it is now.
+     * Events added before the position since are skipped; removed ones are simply gone.
+     */
+    public EventCursor openCursor(PageToken token) {
+        return new EventCursor(snapshot, token);
+    }
+
+    /**
+     * @return How {@link #query(CalendarQuery)} would currently run the query, with the
+     *         estimated cost of each access path; for diagnostics.
+     */
+    public String explain(CalendarQuery query) {
+        return new QueryPlanner(snapshot, query).explain();
+    }
+
+    /**
+     * Looks up a stored event by ID. For a recurring event this is the series,
+     * starting at its first occurrence.
+     *
+     * @return The event, or null if there is none with that ID.
+     */
+    public synchronized Event getEvent(String eventId) {
+        int slot = table.slotOf(eventId);
+        return slot < 0 ? null : table.rows().materialize(slot);
+    }
+
+    // Materializes the events (and occurrences) overlapping [from, to) in the latest snapshot, sorted by start time
+    private List<Event> overlapping(LocalDateTime from, LocalDateTime to) {
+        return snapshot.overlapping(EventTable.toMinutes(from), EventTable.toMinutes(to));
+    }
+
+    private int liveEventCount() {
+        return snapshot.size();
+    }
+
+    /**
+     * Stores an event in the table and keeps the interval index in step,
+     * replacing any previous version with the same ID. Not visible to readers until {@link #publish()}.
+     */
+    private void putEvent(Event e) {
+        int previous = table.slotOf(e.getEventId());
+        if (previous >= 0) {
+            recordChange(table.rows(), previous, e);
+            unindex(previous);
+        } else {
+            recordChange(null, -1, e);
+        }
+        int slot = table.insert(e);
+        EventTable.Rows rows = table.rows();
+        if (rows.isRecurring(slot)) {
+            seriesIndex = seriesIndex.insert(slot, rows.start(slot), rows.end(slot));
+        } else {
+            index = index.insert(slot, rows.start(slot), rows.end(slot));
+        }
+        if (!textDeferred) {
+            text = text.add(rows, slot);
+        }
+    }
+
+    // Puts one event of a batch, noting what it replaced so the batch can be undone
+    private void putBatchEvent(Event e, List<Event> put, List<Event> replaced) {
+        int previous = table.slotOf(e.getEventId());
+        replaced.add(previous >= 0 ? table.rows().materialize(previous) : null);
+        put.add(e);
+        putEvent(e);
+    }
+
+    private void removeEvent(String eventId) {
+        int slot = table.slotOf(eventId);
+        if (slot >= 0) {
+            recordChange(table.rows(), slot, null);
+            unindex(slot);
+        }
+    }
+
+    private void unindex(int slot) {
+        EventTable.Rows rows = table.rows();
+        if (rows.isRecurring(slot)) {
+            seriesIndex = seriesIndex.remove(slot, rows.start(slot));
+        } else {
+            index = index.remove(slot, rows.start(slot));
+        }
+        table.remove(slot);
+    }
+
+    // Notes a change for the listeners, who get it once the change is published
+    private void recordChange(EventTable.Rows rows, int oldSlot, Event newEvent) {
+        if (notifier.hasListeners()) {
+            Event oldEvent = oldSlot < 0 ? null : rows.materialize(oldSlot);
+            changes.add(new CalendarChange(oldEvent, newEvent, snapshot.getVersion() + 1));
+        }
+    }
+
+    // Makes the writer's state visible to readers; called under the lock after each change
+    private void publish() {
+        if (table.getGarbage() > Math.max(TABLE_MIN_GARBAGE, table.size())) {
+            compactTable();
+        } else if (text.needsMerge()) {
+            text = text.merged();
+        }
+        snapshot = new EventSnapshot(index, seriesIndex, text, table.rows(), snapshot.getVersion() + 1);
+        if (!changes.isEmpty()) {
+            notifier.publish(changes);
+            changes = new ArrayList<>();
+        }
+    }
+
+    // Copies the live rows into a fresh table, leaving the old one to readers still using it
+    private void compactTable() {
+        EventTable.Rows oldRows = table.rows();
+        EventTable fresh = new EventTable();
+        IntervalIndex[] freshIndex = {IntervalIndex.EMPTY, IntervalIndex.EMPTY};
+        index.forEach((start, end, slot) -> {
+            freshIndex[0] = freshIndex[0].insert(fresh.copy(oldRows, slot), start, end);
+            return true;
+        });
+        seriesIndex.forEach((start, end, slot) -> {
+            freshIndex[1] = freshIndex[1].insert(fresh.copy(oldRows, slot), start, end);
+            return true;
+        });
+        table = fresh;
+        index = freshIndex[0];
+        seriesIndex = freshIndex[1];
+        text = TextIndex.build(fresh.rows(), index, seriesIndex); // Slots have moved
+    }
+
+    private void scheduleReminder(Event e) {
+        if (reminders != null) {
+            scheduleReminder(e.getEventId(), EventTable.toMinutes(e.getStartTime()), e.getReminderOffsets(),
+                    e.getRecurrence());
+        }
+    }
+
+    // A recurring event is scheduled from its next occurrence that hasn't started
+    private void scheduleReminder(String eventId, long start, int[] offsets, RecurrenceRule rule) {
+        if (rule == null) {
+            reminders.schedule(eventId, start, offsets);
+            return;
+        }
+        LocalDateTime seriesStart = EventTable.fromMinutes(start);
+        LocalDateTime next = rule.nextOccurrenceAfter(seriesStart,
+                LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1));
+        if (next == null) {
+            reminders.cancel(eventId);
+            return;
+        }
+        reminders.schedule(eventId, EventTable.toMinutes(next), offsets, occurrence -> {
+            LocalDateTime following = rule.nextOccurrenceAfter(seriesStart, EventTable.fromMinutes(occurrence));
+            return following == null ? ReminderScheduler.NO_OCCURRENCE : EventTable.toMinutes(following);
+        });
     }
 
     private List<Event> findConflicts(Event e) {
-        // Find conflicts, excluding the event itself if it's already in the cache (for updates)
-        return eventCache.values().stream()
-                .filter(existing -> !existing.getEventId().equals(e.getEventId()) && existing.conflictsWith(e))
-                .collect(Collectors.toList());
+        // Overlap queries against the interval indexes on primitive times, excluding the
+        // event itself if it's already stored (for updates). Only conflicts are materialized.
+        long start = EventTable.toMinutes(e.getStartTime());
+        int self = table.slotOf(e.getEventId());
+        EventTable.Rows rows = table.rows();
+        List<Event> conflicts = new ArrayList<>();
+        RecurrenceRule rule = e.getRecurrence();
+        if (rule == null) {
+            long end = start + e.getDurationMinutes();
+            index.forEachOverlapping(start, end, (s, en, slot) -> {
+                if (slot != self) {
+                    conflicts.add(rows.materialize(slot));
+                }
+                return true;
+            });
+            EventSnapshot.forEachOccurrence(seriesIndex, rows, start, end, (s, en, slot) -> {
+                if (slot != self) {
+                    conflicts.add(rows.materialize(slot, EventTable.fromMinutes(s)));
+                }
+                return true;
+            });
+            return conflicts;
+        }
+
+        // A series: test each one-off in its span against the rule, and each overlapping
+        // series occurrence by occurrence, both only up to a horizon
+        LocalDateTime seriesStart = e.getStartTime();
+        int duration = e.getDurationMinutes();
+        long spanEnd = EventTable.spanEnd(e, start);
+        index.forEachOverlapping(start, Math.min(spanEnd, start + SERIES_CONFLICT_HORIZON_MINUTES), (s, en, slot) -> {
+            if (slot != self && rule.firstOccurrenceOverlapping(seriesStart, duration,
+                    EventTable.fromMinutes(s), EventTable.fromMinutes(en)) != null) {
+                conflicts.add(rows.materialize(slot));
+            }
+            return true;
+        });
+        seriesIndex.forEachOverlapping(start, spanEnd, (otherStart, otherEnd, slot) -> {
+            if (slot == self) {
+                return true;
+            }
+            RecurrenceRule other = rows.recurrence(slot);
+            LocalDateTime otherSeriesStart = EventTable.fromMinutes(otherStart);
+            int otherDuration = rows.duration(slot);
+            long from = Math.max(start, otherStart);
+            long to = Math.min(Math.min(spanEnd, otherEnd), from + SERIES_CONFLICT_HORIZON_MINUTES);
+            rule.forEachOccurrence(seriesStart, duration, EventTable.fromMinutes(from), EventTable.fromMinutes(to),
+                    occurrence -> {
+                        LocalDateTime clash = other.firstOccurrenceOverlapping(otherSeriesStart, otherDuration,
+                                occurrence, occurrence.plusMinutes(duration));
+                        if (clash != null) {
+                            conflicts.add(rows.materialize(slot, clash));
+                            return false;
+                        }
+                        return true;
+                    });
+            return true;
+        });
+        return conflicts;
     }
 
+    /**
+     * Adds an event unless it overlaps a stored one. A recurring event is checked against
+     * the events in the first {@value #SERIES_CONFLICT_HORIZON_MINUTES} minutes (two years)
+     * of its series, and against each other series over two years from the later start of
+     * the two, so an unbounded series costs no more to add than a bounded one. Clashes past
+     * that are not detected.
+     *
+     * @throws EventConflictException If it overlaps, with the conflicting events and a suggested free slot.
+     */
     public synchronized void addEvent(Event e) throws EventConflictException {
         List<Event> conflicts = findConflicts(e);
         if (!conflicts.isEmpty()) {
             throw new EventConflictException(conflicts, suggestFreeSlot(e.getStartTime(), e.getDurationMinutes()));
         }
-        eventCache.put(e.getEventId(), e);
-        persistEvents();
+        putEvent(e);
+        publish();
+        scheduleReminder(e);
+        persistPut(e);
+    }
+
+    /**
+     * Adds several events at once. Each is added unless it conflicts with an existing
+     * event or with one added earlier in the batch (in start time order); an event ID
+     * may appear only once per batch. The added events become visible together and are
+     * persisted with a single write.
+     *
+     * @return Which events were added and what each skipped one conflicts with.
+     * @throws IllegalArgumentException If an event is of an unsupported type; nothing is added.
+     */
+    public synchronized BatchAddResult addEvents(Collection<? extends Event> events) {
+        BatchAddResult result = putBatch(events);
+        if (!result.getAdded().isEmpty()) {
+            persistPuts(result.getAdded());
+        }
+        return result;
     }
 
+    // Adds and publishes a batch and schedules its reminders, leaving persisting it to the caller
+    private BatchAddResult putBatch(Collection<? extends Event> events) {
+        List<Event> oneOffs = new ArrayList<>(events.size());
+        List<Event> series = new ArrayList<>();
+        for (Event e : events) {
+            EventTable.typeCode(e); // Validate up front so the batch applies all or nothing
+            (e.isRecurring() ? series : oneOffs).add(e);
+        }
+        oneOffs.sort(Comparator.comparing(Event::getStartTime)); // Stable: ties keep their order
+
+        Map<Event, List<Event>> conflictsOf = new IdentityHashMap<>();
+        Map<String, Event> accepted = new HashMap<>();
+        List<Event> acceptedOneOffs = new ArrayList<>(oneOffs.size());
+        sweepConflicts(oneOffs, conflictsOf, accepted, acceptedOneOffs);
+        // A large batch is cheaper to index in one pass afterwards than event by event
+        boolean reindex = events.size() > Math.max(TEXT_MIN_REINDEX, snapshot.size() / 8);
+        textDeferred = reindex;
+        List<Event> put = new ArrayList<>(acceptedOneOffs.size());
+        List<Event> replaced = new ArrayList<>(acceptedOneOffs.size()); // Per put event, the version it replaced or null
+        int changesBefore = changes.size();
+        boolean applied = false;
+        try {
+            for (Event e : acceptedOneOffs) {
+                putBatchEvent(e, put, replaced);
+            }
+            // Series are few; check each against everything stored so far
+            for (Event e : series) {
+                Event earlier = accepted.get(e.getEventId());
+                List<Event> conflicts = earlier != null ? List.of(earlier) : findConflicts(e);
+                if (conflicts.isEmpty()) {
+                    accepted.put(e.getEventId(), e);
+                    putBatchEvent(e, put, replaced);
+                } else {
+                    conflictsOf.put(e, conflicts);
+                }
+            }
+            applied = true;
+        } finally {
+            if (!applied) {
+                // Nothing has been published, so undoing the puts leaves the calendar as it was
+                for (int i = put.size() - 1; i >= 0; i--) {
+                    if (replaced.get(i) != null) {
+                        putEvent(replaced.get(i));
+                    } else {
+                        removeEvent(put.get(i).getEventId());
+                    }
+                }
+                changes.subList(changesBefore, changes.size()).clear();
+            }
+            if (reindex) {
+                textDeferred = false;
+                text = TextIndex.build(table.rows(), index, seriesIndex);
+            }
+        }
+
+        List<Event> added = new ArrayList<>(accepted.size());
+        List<BatchAddResult.Rejection> rejected = new ArrayList<>(conflictsOf.size());
+        for (Event e : events) {
+            List<Event> conflicts = conflictsOf.get(e);
+            if (conflicts == null) {
+                added.add(e);
+            } else {
+                rejected.add(new BatchAddResult.Rejection(e, conflicts));
+            }
+        }
+        if (!added.isEmpty()) {
+            publish();
+            for (Event e : added) {
+                scheduleReminder(e);
+            }
+        }
+        return new BatchAddResult(added, rejected);
+    }
+
+    // A busy interval in the sweep: a stored event (by slot) or one accepted from the batch
+    private static final class Busy {
+        final long start;
+        final long end;
+        final int slot;    // -1 for a batch event
+        final Event event; // null for a stored event
+
+        Busy(long start, long end, int slot, Event event) {
+            this.start = start;
+            this.end = end;
+            this.slot = slot;
+            this.event = event;
+        }
+    }
+
+    /**
+     * Checks one-off events, sorted by start, in a single sweep over the stored events
+     * they span and the batch events accepted before them. Stored series are checked
+     * per event through their index. Nothing is stored yet.
+     */
+    private void sweepConflicts(List<Event> sorted, Map<Event, List<Event>> conflictsOf,
+                                Map<String, Event> accepted, List<Event> acceptedOneOffs) {
+        if (sorted.isEmpty()) {
+            return;
+        }
+        EventTable.Rows rows = table.rows();
+        long from = EventTable.toMinutes(sorted.get(0).getStartTime());
+        long to = from;
+        for (Event e : sorted) {
+            to = Math.max(to, EventTable.toMinutes(e.getStartTime()) + e.getDurationMinutes());
+        }
+        List<Busy> stored = new ArrayList<>();
+        index.forEachOverlapping(from, to, (start, end, slot) -> {
+            stored.add(new Busy(start, end, slot, null));
+            return true;
+        });
+
+        // Intervals that started at or before the current event, by end; ones ending
+        // before the sweep position are dropped as they reach the head
+        PriorityQueue<Busy> active = new PriorityQueue<>(Comparator.comparingLong(b -> b.end));
+        int next = 0;
+        for (Event e : sorted) {
+            long start = EventTable.toMinutes(e.getStartTime());
+            long end = start + e.getDurationMinutes();
+            String id = e.getEventId();
+            while (next < stored.size() && stored.get(next).start < end) {
+                active.add(stored.get(next++));
+            }
+            while (!active.isEmpty() && active.peek().end <= start) {
+                active.poll();
+            }
+
+            List<Event> conflicts = new ArrayList<>();
+            Event earlier = accepted.get(id);
+            if (earlier != null) {
+                conflicts.add(earlier);
+            }
+            for (Busy b : active) {
+                // A stored event with the same ID is the one being replaced
+                if (b.start < end && b.end > start && (b.event != null || !rows.id(b.slot).equals(id))) {
+                    conflicts.add(b.event != null ? b.event : rows.materialize(b.slot));
+                }
+            }
+            EventSnapshot.forEachOccurrence(seriesIndex, rows, start, end, (s, en, slot) -> {
+                if (!rows.id(slot).equals(id)) {
+                    conflicts.add(rows.materialize(slot, EventTable.fromMinutes(s)));
+                }
+                return true;
+            });
+
+            if (conflicts.isEmpty()) {
+                accepted.put(id, e);
+                acceptedOneOffs.add(e);
+                active.add(new Busy(start, end, -1, e));
+            } else {
+                conflictsOf.put(e, conflicts);
+            }
+        }
+    }
+
+    /**
+     * Replaces the stored event with the same ID, checking conflicts as {@link #addEvent(Event)} does.
+     */
     public synchronized void updateEvent(Event e) throws EventConflictException {
         List<Event> conflicts = findConflicts(e);
         if (!conflicts.isEmpty()) {
             throw new EventConflictException(conflicts, suggestFreeSlot(e.getStartTime(), e.getDurationMinutes()));
         }
-        eventCache.put(e.getEventId(), e);
-        remindersFired.remove(e.getEventId()); // Allow reminder to fire again if rescheduled
-        persistEvents();
+        putEvent(e);
+        publish();
+        scheduleReminder(e); // Reminders already fired repeat only if the start time changed
+        persistPut(e);
     }
 
+    /**
+     * Deletes an event; for a recurring event, the whole series.
+     */
     public synchronized void deleteEvent(String eventId) {
-        eventCache.remove(eventId);
-        remindersFired.remove(eventId);
-        persistEvents();
+        removeEvent(eventId);
+        publish();
+        if (reminders != null) {
+            reminders.cancel(eventId);
+        }
+        persistDelete(eventId);
     }
 
-    public synchronized Optional<LocalDateTime> suggestFreeSlot(LocalDateTime desiredStart, int durationMinutes) {
-        LocalDateTime suggestion = desiredStart.plusMinutes(15); // Start checking 15 mins after conflict
+    /**
+     * Suggests the earliest free slot at or after {@code desiredStart} that fits the duration.
+     * Looks at most {@value #SUGGESTION_HORIZON_MINUTES} minutes ahead.
+     */
+    public Optional<LocalDateTime> suggestFreeSlot(LocalDateTime desiredStart, int durationMinutes) {
+        List<LocalDateTime> slots = new FreeSlotFinder(snapshot).find(desiredStart, durationMinutes, 1,
+                desiredStart.plusMinutes(SUGGESTION_HORIZON_MINUTES), null, null);
+        return slots.isEmpty() ? Optional.empty() : Optional.of(slots.get(0));
+    }
 
-        // Try 100 slots in 15-minute increments
-        for (int i = 0; i < 100; i++) {
-            LocalDateTime suggestionEnd = suggestion.plusMinutes(durationMinutes);
-            
-            // Create a dummy event to test
-            Event testEvent = new Appointment(null, "test", null, suggestion, durationMinutes, null);
+    /**
+     * Finds up to {@code maxResults} free slots, one per gap between events, earliest first.
+     * Looks at most {@value #FREE_SLOT_SEARCH_DAYS} days ahead of {@code from}.
+     */
+    public List<LocalDateTime> findFreeSlots(LocalDateTime from, int durationMinutes, int maxResults) {
+        return findFreeSlots(from, durationMinutes, maxResults, null, null);
+    }
 
-            boolean hasConflict = eventCache.values().stream().anyMatch(e -> e.conflictsWith(testEvent));
+    /**
+     * Finds up to {@code maxResults} free slots that also fall inside the daily
+     * working-hours window [workStart, workEnd), earliest first.
+     * Looks at most {@value #FREE_SLOT_SEARCH_DAYS} days ahead of {@code from}.
+     */
+    public List<LocalDateTime> findFreeSlots(LocalDateTime from, int durationMinutes, int maxResults,
+                                             LocalTime workStart, LocalTime workEnd) {
+        return new FreeSlotFinder(snapshot).find(from, durationMinutes, maxResults,
+                from.plusDays(FREE_SLOT_SEARCH_DAYS), workStart, workEnd);
+    }
 
-            if (!hasConflict) {
-                return Optional.of(suggestion);
-            }
-            suggestion = suggestion.plusMinutes(15);
+    /**
+     * Starts the background reminder service. Reminders fire at each event's
+     * {@linkplain Event#getReminderOffsets() reminder offsets}, on a reminder dispatch thread.
+     * @param reminderCallback The action to perform for each reminder.
+     */
+    public void startReminderService(Consumer<Event> reminderCallback) {
+        startBatchedReminderService(events -> events.forEach(reminderCallback));
+    }
+
+    /**
+     * Starts the background reminder service, delivering reminders that come due
+     * together in one call. Reminders fire at each event's
+     * {@linkplain Event#getReminderOffsets() reminder offsets}, on a reminder dispatch
+     * thread and never under the storage lock, so the callback may block.
+     * @param reminderCallback The action to perform for each batch, earliest event first.
+     */
+    public void startBatchedReminderService(Consumer<List<Event>> reminderCallback) {
+        ReminderScheduler previous;
+        ReminderDispatcher previousDispatcher;
+        synchronized (this) {
+            previous = reminders;
+            previousDispatcher = dispatcher;
+            // Hand over the latest version, unless it was deleted or moved meanwhile
+            dispatcher = new ReminderDispatcher(due -> snapshot.find(due.eventId, due.startMinutes), reminderCallback);
+            reminders = new ReminderScheduler(dispatcher);
+            // Seed with every event and series that hasn't started or ended; writers keep it current from here on
+            EventTable.Rows rows = table.rows();
+            long now = EventTable.toMinutes(LocalDateTime.now());
+            index.forEachOverlapping(now, Long.MAX_VALUE, (start, end, slot) -> {
+                reminders.schedule(rows.id(slot), start, rows.reminderOffsets(slot));
+                return true;
+            });
+            seriesIndex.forEachOverlapping(now, Long.MAX_VALUE, (start, end, slot) -> {
+                scheduleReminder(rows.id(slot), start, rows.reminderOffsets(slot), rows.recurrence(slot));
+                return true;
+            });
+            reminders.start();
+        }
+        if (previous != null) {
+            previous.close();
+            previousDispatcher.close();
         }
-        return Optional.empty();
     }
 
     /**
-     * Starts the background reminder service.
-     * @param reminderCallback The action to perform (on the EDT) when a reminder fires.
+     * @return Reminder delivery counters and latencies, or null if the reminder service isn't running.
      */
-    public void startReminderService(Consumer<Event> reminderCallback) {
-        if (reminderTimer != null) {
-            reminderTimer.cancel();
-        }
-        reminderTimer = new Timer(true); // Daemon thread
-        
-        // Check every minute
-        reminderTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                // Must synchronize on the storage object to safely access cache
-                synchronized (CalendarStorage.this) {
-                    LocalDateTime now = LocalDateTime.now();
-                    // We check a 1-minute window:
-                    // from 10 minutes from now
-                    // to 11 minutes from now
-                    LocalDateTime reminderWindowStart = now.plusMinutes(10);
-                    LocalDateTime reminderWindowEnd = now.plusMinutes(11);
-
-                    eventCache.values().stream()
-                        .filter(e -> !remindersFired.contains(e.getEventId())) // Not already fired
-                        .filter(e -> e.getStartTime().isAfter(reminderWindowStart)) // Starts after 10 mins
-                        .filter(e -> e.getStartTime().isBefore(reminderWindowEnd)) // Starts before 11 mins
-                        .forEach(event -> {
-                            reminderCallback.accept(event);
-                            remindersFired.add(event.getEventId());
-                        });
-                }
-            }
-        }, 0, 60_000); // Run every 60 seconds
+    public synchronized ReminderStats getReminderStats() {
+        return dispatcher == null ? null : dispatcher.getStats();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package storage;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers change batches to the registered listeners on a single thread, so they
+ * arrive in the order they were published and a slow listener never holds up a writer.
+ * The thread is started when the first listener registers.
+ */
+class ChangeNotifier implements Closeable {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final List<CalendarChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private ExecutorService executor; // Guarded by this; null until a listener registers
+
+    synchronized void add(CalendarChangeListener listener) {
+        listeners.add(listener);
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "calendar-changes");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    void remove(CalendarChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true if anyone is listening, so changes are worth recording.
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Queues one write's changes for delivery. Callers publish in write order.
+     */
+    synchronized void publish(List<CalendarChange> changes) {
+        if (executor == null || executor.isShutdown() || changes.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            for (CalendarChangeListener listener : listeners) {
+                try {
+                    listener.calendarChanged(changes);
+                } catch (RuntimeException e) {
+                    // One failing listener mustn't stop the others or the thread
+                    System.err.println("Calendar change listener failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Delivers the changes already queued, then stops the thread.
+     */
+    @Override
+    public void close() {
+        ExecutorService toStop;
+        synchronized (this) {
+            toStop = executor;
+        }
+        if (toStop == null) {
+            return;
+        }
+        toStop.shutdown();
+        try {
+            if (!toStop.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                toStop.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            toStop.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package storage;
+
+import model.Event;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Walks a {@link CalendarQuery}'s results in start-time order, a page at a time, from
+ * {@link CalendarStorage#openCursor(CalendarQuery, int)}.
+ * <p>
+ * A cursor reads the snapshot that was current when it was opened, so its pages are
+ * consistent with each other however the calendar changes meanwhile. Events are built
+ * only as their page is requested, so walking any range takes memory for one page.
+ * Not thread-safe; for use by one consumer at a time.
+ */
+public final class EventCursor {
+
+    private final CalendarQuery query;
+    private final int pageSize;
+    private final Iterator<Event> events;
+    private long delivered;
+    private LocalDateTime lastStart;
+    private Set<String> idsAtLastStart;
+
+    EventCursor(EventSnapshot snapshot, PageToken token) {
+        this.query = token.getQuery();
+        this.pageSize = token.getPageSize();
+        this.delivered = token.getDelivered();
+        this.lastStart = token.getLastStart();
+        this.idsAtLastStart = new HashSet<>(token.getIdsAtLastStart());
+        QueryPlanner planner = new QueryPlanner(snapshot, query);
+        long remaining = query.getLimit() - delivered;
+        if (lastStart == null) {
+            events = planner.iterator(Long.MIN_VALUE, idsAtLastStart, query.getOffset(), remaining);
+        } else {
+            // The offset was used up by the pages before
+            events = planner.iterator(EventTable.toMinutes(lastStart), idsAtLastStart, 0, remaining);
+        }
+    }
+
+    /**
+     * @return true if there is at least one more event.
+     */
+    public boolean hasNext() {
+        return events.hasNext();
+    }
+
+    /**
+     * @return Up to the page size of the next events; empty once the walk is done.
+     */
+    public List<Event> nextPage() {
+        List<Event> page = new ArrayList<>(Math.min(pageSize, 1024));
+        while (page.size() < pageSize && events.hasNext()) {
+            Event e = events.next();
+            if (!e.getStartTime().equals(lastStart)) {
+                lastStart = e.getStartTime();
+                idsAtLastStart = new HashSet<>();
+            }
+            idsAtLastStart.add(e.getEventId());
+            page.add(e);
+        }
+        delivered += page.size();
+        return page;
+    }
+
+    /**
+     * @return The position after the last page returned, to resume the walk later.
+     */
+    public PageToken getToken() {
+        return new PageToken(query, pageSize, lastStart, new HashSet<>(idsAtLastStart), delivered);
+    }
+}
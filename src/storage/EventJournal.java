@@ -0,0 +1,238 @@
+package storage;
+
+import model.Event;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only write-ahead journal of event mutations.
+ * <p>
+ * Each record is one line: {@code + {event json}} for an add/update, or
+ * {@code - "eventId"} for a delete. A torn final line (e.g. after a crash mid-write)
+ * is skipped on replay. Appends are buffered until {@link #flush(boolean)}, so the
+ * caller decides whether to flush per record or group-commit a batch.
+ * <p>
+ * Records are appended to the active segment ({@code <name>}). {@link #seal()} renames
+ * it to a numbered segment ({@code <name>.1}, {@code <name>.2}, ...) so a compactor
+ * can fold sealed segments into the snapshot while new records keep going to a
+ * fresh active segment. Replay applies sealed segments in order, then the active one.
+ * Replaying a segment that was already folded into the snapshot is harmless, since
+ * the last record for each event still wins.
+ */
+class EventJournal implements Closeable {
+
+    private static final String PUT_PREFIX = "+ ";
+    private static final String DELETE_PREFIX = "- ";
+
+    private final Path file;
+    private FileChannel channel;
+    private BufferedWriter writer;
+
+    // Size of the journal since the last compaction, for compaction triggers
+    private long activeBytes;
+    private int activeRecords;
+    private long sealedBytes;
+    private int sealedRecords;
+
+    EventJournal(Path file) {
+        this.file = file;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    synchronized void appendPut(Event event) throws IOException {
+        append(PUT_PREFIX + JsonUtil.serializeLine(event));
+    }
+
+    synchronized void appendDelete(String eventId) throws IOException {
+        append(DELETE_PREFIX + "\"" + JsonUtil.escape(eventId) + "\"");
+    }
+
+    private void append(String record) throws IOException {
+        if (writer == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                    StandardCharsets.UTF_8));
+        }
+        writer.write(record);
+        writer.write('\n');
+        activeBytes += record.length() + 1;
+        activeRecords++;
+    }
+
+    /**
+     * Hands buffered records to the OS.
+     *
+     * @param sync Also force them to the storage device before returning.
+     */
+    synchronized void flush(boolean sync) throws IOException {
+        if (writer != null) {
+            writer.flush();
+            if (sync) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * @return Approximate journal size in bytes (sealed plus active segments).
+     */
+    synchronized long getPendingBytes() {
+        return sealedBytes + activeBytes;
+    }
+
+    /**
+     * @return Number of records in the sealed and active segments.
+     */
+    synchronized int getPendingRecords() {
+        return sealedRecords + activeRecords;
+    }
+
+    /**
+     * Seals the active segment so later appends start a new one.
+     * Only the rename happens under the journal's lock.
+     *
+     * @return Every sealed segment, oldest first (including any left by an earlier failed compaction).
+     */
+    synchronized List<Path> seal() throws IOException {
+        List<Path> sealed = sealedSegments();
+        if (Files.exists(file)) {
+            close();
+            long next = sealed.isEmpty() ? 1 : segmentNumber(sealed.get(sealed.size() - 1)) + 1;
+            Path target = file.resolveSibling(file.getFileName() + "." + next);
+            Files.move(file, target);
+            sealed.add(target);
+            sealedBytes += activeBytes;
+            sealedRecords += activeRecords;
+            activeBytes = 0;
+            activeRecords = 0;
+        }
+        return sealed;
+    }
+
+    /**
+     * Deletes sealed segments once their contents are safely in the snapshot.
+     */
+    synchronized void discard(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        sealedBytes = 0;
+        sealedRecords = 0;
+    }
+
+    /**
+     * Replays every record in the journal: sealed segments in order, then the active one.
+     *
+     * @return The number of records applied.
+     */
+    synchronized int replay(Consumer<Event> onPut, Consumer<String> onDelete) throws IOException {
+        List<Path> sealed = sealedSegments();
+        sealedBytes = 0;
+        sealedRecords = 0;
+        for (Path segment : sealed) {
+            sealedRecords += replaySegment(segment, onPut, onDelete);
+            sealedBytes += Files.size(segment);
+        }
+        activeRecords = 0;
+        activeBytes = 0;
+        if (Files.exists(file)) {
+            activeRecords = replaySegment(file, onPut, onDelete);
+            activeBytes = Files.size(file);
+        }
+        return sealedRecords + activeRecords;
+    }
+
+    /**
+     * Replays the records of a single segment, in order.
+     *
+     * @return The number of records applied.
+     */
+    static int replaySegment(Path segment, Consumer<Event> onPut, Consumer<String> onDelete) throws IOException {
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PUT_PREFIX) && line.endsWith("}")) {
+                    List<Event> events = JsonUtil.deserialize(line.substring(PUT_PREFIX.length()));
+                    if (events.size() == 1) {
+                        onPut.accept(events.get(0));
+                        applied++;
+                        continue;
+                    }
+                } else if (line.startsWith(DELETE_PREFIX) && line.length() > DELETE_PREFIX.length() + 1
+                        && line.endsWith("\"")) {
+                    String quoted = line.substring(DELETE_PREFIX.length());
+                    onDelete.accept(JsonUtil.unescape(quoted.substring(1, quoted.length() - 1)));
+                    applied++;
+                    continue;
+                }
+                if (!line.isBlank()) {
+                    System.err.println("Skipping unreadable journal record: " + line);
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Closes the journal and deletes all of its segments.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        discard(sealedSegments());
+        Files.deleteIfExists(file);
+        activeBytes = 0;
+        activeRecords = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            channel.force(false);
+            writer.close();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    private List<Path> sealedSegments() throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(prefix) && name.length() > prefix.length()
+                                && name.substring(prefix.length()).chars().allMatch(Character::isDigit);
+                    })
+                    .sorted(Comparator.comparingLong(EventJournal::segmentNumber))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+}
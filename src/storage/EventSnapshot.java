@@ -0,0 +1,217 @@
+package storage;
+
+import model.Event;
+import model.RecurrenceRule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, versioned view of the calendar, published by {@link CalendarStorage}
+ * after every write. Readers pick up the current snapshot with a single volatile
+ * read and query it without locking; it never changes underneath them.
+ * <p>
+ * One-off events and recurring series are kept in separate indexes. A series is
+ * indexed once, over the span from its first start to its last occurrence's end,
+ * and its occurrences are only computed for the window being queried.
+ */
+final class EventSnapshot {
+
+    static final EventSnapshot EMPTY = new EventSnapshot(IntervalIndex.EMPTY, IntervalIndex.EMPTY, TextIndex.EMPTY,
+            new EventTable().rows(), 0);
+
+    private static final Comparator<Event> BY_START = Comparator.comparing(Event::getStartTime);
+
+    private final IntervalIndex index;
+    private final IntervalIndex seriesIndex;
+    private final TextIndex text;
+    private final EventTable.Rows rows;
+    private final long version;
+
+    EventSnapshot(IntervalIndex index, IntervalIndex seriesIndex, TextIndex text, EventTable.Rows rows,
+                  long version) {
+        this.index = index;
+        this.seriesIndex = seriesIndex;
+        this.text = text;
+        this.rows = rows;
+        this.version = version;
+    }
+
+    /**
+     * @return The index of one-off events.
+     */
+    IntervalIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The index of recurring series, by their whole span.
+     */
+    IntervalIndex getSeriesIndex() {
+        return seriesIndex;
+    }
+
+    TextIndex getText() {
+        return text;
+    }
+
+    EventTable.Rows getRows() {
+        return rows;
+    }
+
+    /**
+     * @return A number that increases with every published change.
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of stored events, counting each series once.
+     */
+    int size() {
+        return index.size() + seriesIndex.size();
+    }
+
+    /**
+     * Materializes the events overlapping [from, to) (in epoch minutes), sorted by start time.
+     * Each occurrence of a recurring event in the window is a separate event.
+     */
+    List<Event> overlapping(long from, long to) {
+        List<Event> result = new ArrayList<>();
+        index.forEachOverlapping(from, to, (start, end, slot) -> {
+            result.add(rows.materialize(slot));
+            return true;
+        });
+        int oneOffs = result.size();
+        forEachOccurrence(from, to, (start, end, slot) -> {
+            result.add(rows.materialize(slot, EventTable.fromMinutes(start)));
+            return true;
+        });
+        if (result.size() > oneOffs) {
+            result.sort(BY_START);
+        }
+        return result;
+    }
+
+    /**
+     * Visits every occurrence of a recurring event that overlaps [from, to) (in epoch minutes),
+     * series by series. The slot is the series'.
+     *
+     * @return false if the visitor stopped early.
+     */
+    boolean forEachOccurrence(long from, long to, IntervalIndex.Visitor visitor) {
+        return forEachOccurrence(seriesIndex, rows, from, to, visitor);
+    }
+
+    /**
+     * Like {@link #forEachOccurrence(long, long, IntervalIndex.Visitor)}, for the writer's
+     * unpublished state.
+     */
+    static boolean forEachOccurrence(IntervalIndex seriesIndex, EventTable.Rows rows, long from, long to,
+                                     IntervalIndex.Visitor visitor) {
+        if (seriesIndex.size() == 0) {
+            return true;
+        }
+        LocalDateTime fromTime = EventTable.fromMinutes(from);
+        LocalDateTime toTime = EventTable.fromMinutes(to);
+        return seriesIndex.forEachOverlapping(from, to, (spanStart, spanEnd, slot) -> {
+            RecurrenceRule rule = rows.recurrence(slot);
+            int duration = rows.duration(slot);
+            return rule.forEachOccurrence(EventTable.fromMinutes(spanStart), duration, fromTime, toTime, start -> {
+                long minutes = EventTable.toMinutes(start);
+                return visitor.visit(minutes, minutes + duration, slot);
+            });
+        });
+    }
+
+    /**
+     * Looks up an event, or an occurrence of a recurring event, by ID and start time (in epoch minutes).
+     *
+     * @return The event, or null if no event with that ID starts then.
+     */
+    Event find(String eventId, long start) {
+        Event[] found = new Event[1];
+        IntervalIndex.Visitor match = (s, end, slot) -> {
+            if (s == start && rows.id(slot).equals(eventId)) {
+                found[0] = rows.isRecurring(slot) ? rows.materialize(slot, EventTable.fromMinutes(s))
+                        : rows.materialize(slot);
+                return false;
+            }
+            return true;
+        };
+        if (index.forEachOverlapping(start, start + 1, match)) {
+            forEachOccurrence(start, start + 1, match);
+        }
+        return found[0];
+    }
+
+    /**
+     * Finds the events whose title, description or detail has, for every word of the query,
+     * a word starting with it (case-insensitive), and that overlap [from, to) (in epoch minutes).
+     * Within a bounded range each matching occurrence of a recurring event is returned;
+     * otherwise a recurring event is returned once, as its series.
+     *
+     * @return The matches, sorted by start time.
+     */
+    List<Event> search(String query, long from, long to) {
+        boolean unbounded = from == Long.MIN_VALUE && to == Long.MAX_VALUE;
+        List<Event> result = new ArrayList<>();
+        for (int slot : text.search(query)) {
+            boolean recurring = rows.isRecurring(slot);
+            long start = rows.start(slot);
+            // Postings outlive removed events; only slots still indexed are live
+            if (!(recurring ? seriesIndex : index).contains(slot, start)
+                    || start >= to || rows.end(slot) <= from) {
+                continue;
+            }
+            if (!recurring || unbounded) {
+                result.add(rows.materialize(slot));
+                continue;
+            }
+            int duration = rows.duration(slot);
+            rows.recurrence(slot).forEachOccurrence(EventTable.fromMinutes(start), duration,
+                    EventTable.fromMinutes(from), EventTable.fromMinutes(to), occurrence -> {
+                        result.add(rows.materialize(slot, occurrence));
+                        return true;
+                    });
+        }
+        result.sort(BY_START);
+        return result;
+    }
+
+    /**
+     * Materializes the events overlapping [from, to) (in epoch minutes) one at a time,
+     * without collecting them. A recurring event is passed once, as its series, if any
+     * occurrence could fall in the range. Events come in no particular order.
+     */
+    void forEachEvent(long from, long to, Consumer<Event> action) {
+        IntervalIndex.Visitor visit = (start, end, slot) -> {
+            action.accept(rows.materialize(slot));
+            return true;
+        };
+        index.forEachOverlapping(from, to, visit);
+        seriesIndex.forEachOverlapping(from, to, visit);
+    }
+
+    /**
+     * Materializes every event, sorted by start time. A recurring event appears once,
+     * as its series (starting at the first occurrence).
+     */
+    List<Event> all() {
+        List<Event> result = new ArrayList<>(size());
+        IntervalIndex.Visitor add = (start, end, slot) -> {
+            result.add(rows.materialize(slot));
+            return true;
+        };
+        index.forEach(add);
+        if (seriesIndex.size() > 0) {
+            seriesIndex.forEach(add);
+            result.sort(BY_START);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,307 @@
+package storage;
+
+import model.Appointment;
+import model.Deadline;
+import model.Event;
+import model.RecurrenceRule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar in-memory store of events, indexed by slot.
+ * <p>
+ * Times live in primitive columns (start/end in epoch minutes, duration in minutes)
+ * so range, conflict and reminder scans run without allocating; strings are held in
+ * parallel columns. {@link Event} objects are only created by {@link Rows#materialize(int)}
+ * when handed to callers.
+ * <p>
+ * The table is append-only: a row is never changed once written, and removing an event
+ * only forgets its ID. Published {@link Rows} can therefore be read by any thread without
+ * locking. Removed rows stay behind as garbage until the owner copies the live rows into
+ * a fresh table (see {@link #getGarbage()}).
+ * <p>
+ * Writes are not thread-safe; {@link CalendarStorage} serializes its writers.
+ */
+final class EventTable {
+
+    static final byte TYPE_APPOINTMENT = 0;
+    static final byte TYPE_DEADLINE = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int[] DEFAULT_REMINDER_OFFSETS = {Event.DEFAULT_REMINDER_MINUTES};
+    // The minutes of LocalDateTime.MIN and of the last whole minute before LocalDateTime.MAX
+    static final long MIN_MINUTES = toMinutes(LocalDateTime.MIN);
+    static final long MAX_MINUTES = toMinutes(LocalDateTime.MAX);
+
+    /**
+     * Read-only view of the table's rows. Rows already written never change,
+     * so a view stays valid for every slot it was published with.
+     */
+    static final class Rows {
+        private final long[] starts;
+        private final long[] ends;
+        private final int[] durations;
+        private final byte[] types;
+        private final String[] ids;
+        private final String[] titles;
+        private final String[] descriptions;
+        private final String[] details;
+        private final int[][] reminders; // null for the default reminders
+        private final RecurrenceRule[] recurrences; // null for one-off events
+
+        private Rows(int capacity) {
+            starts = new long[capacity];
+            ends = new long[capacity];
+            durations = new int[capacity];
+            types = new byte[capacity];
+            ids = new String[capacity];
+            titles = new String[capacity];
+            descriptions = new String[capacity];
+            details = new String[capacity];
+            reminders = new int[capacity][];
+            recurrences = new RecurrenceRule[capacity];
+        }
+
+        private Rows(Rows from, int capacity) {
+            starts = Arrays.copyOf(from.starts, capacity);
+            ends = Arrays.copyOf(from.ends, capacity);
+            durations = Arrays.copyOf(from.durations, capacity);
+            types = Arrays.copyOf(from.types, capacity);
+            ids = Arrays.copyOf(from.ids, capacity);
+            titles = Arrays.copyOf(from.titles, capacity);
+            descriptions = Arrays.copyOf(from.descriptions, capacity);
+            details = Arrays.copyOf(from.details, capacity);
+            reminders = Arrays.copyOf(from.reminders, capacity);
+            recurrences = Arrays.copyOf(from.recurrences, capacity);
+        }
+
+        /**
+         * @return The start, or for a recurring event the first occurrence's start, in epoch minutes.
+         */
+        long start(int slot) {
+            return starts[slot];
+        }
+
+        /**
+         * @return The number of slots, including ones not yet written.
+         */
+        int capacity() {
+            return starts.length;
+        }
+
+        /**
+         * @return The end, or for a recurring event the last occurrence's end
+         *         ({@link Long#MAX_VALUE} if it never stops), in epoch minutes.
+         */
+        long end(int slot) {
+            return ends[slot];
+        }
+
+        int duration(int slot) {
+            return durations[slot];
+        }
+
+        String id(int slot) {
+            return ids[slot];
+        }
+
+        /**
+         * @return {@link #TYPE_APPOINTMENT} or {@link #TYPE_DEADLINE}.
+         */
+        byte type(int slot) {
+            return types[slot];
+        }
+
+        String title(int slot) {
+            return titles[slot];
+        }
+
+        String description(int slot) {
+            return descriptions[slot];
+        }
+
+        String detail(int slot) {
+            return details[slot];
+        }
+
+        /**
+         * @return The slot's reminder offsets, largest first. Callers must not modify them.
+         */
+        int[] reminderOffsets(int slot) {
+            return reminders[slot] == null ? DEFAULT_REMINDER_OFFSETS : reminders[slot];
+        }
+
+        RecurrenceRule recurrence(int slot) {
+            return recurrences[slot];
+        }
+
+        boolean isRecurring(int slot) {
+            return recurrences[slot] != null;
+        }
+
+        /**
+         * Builds a new Event object from the slot's columns (for a recurring event, the series).
+         */
+        Event materialize(int slot) {
+            return materialize(slot, fromMinutes(starts[slot]));
+        }
+
+        /**
+         * Builds the occurrence of a recurring event that starts at {@code start}.
+         */
+        Event materialize(int slot, LocalDateTime start) {
+            if (types[slot] == TYPE_DEADLINE) {
+                return new Deadline(ids[slot], titles[slot], descriptions[slot], start, durations[slot], details[slot],
+                        reminders[slot], recurrences[slot]);
+            }
+            return new Appointment(ids[slot], titles[slot], descriptions[slot], start, durations[slot], details[slot],
+                    reminders[slot], recurrences[slot]);
+        }
+    }
+
+    private Rows rows = new Rows(INITIAL_CAPACITY);
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private int highWater; // Slots [0, highWater) have been written
+
+    /**
+     * Converts a timestamp to whole minutes since the epoch (UTC, no zone shift).
+     * Events are minute-granular, so this is the key used for all interval math.
+     * Every LocalDateTime fits: the result lies in [{@link #MIN_MINUTES}, {@link #MAX_MINUTES}].
+     */
+    static long toMinutes(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * The inverse of {@link #toMinutes}. Values outside [{@link #MIN_MINUTES}, {@link #MAX_MINUTES}],
+     * such as the Long.MIN_VALUE and Long.MAX_VALUE bounds used for open-ended ranges, are
+     * clamped to {@link LocalDateTime#MIN} and {@link LocalDateTime#MAX} rather than overflowing;
+     * converting those back gives the minute bounds, not the original sentinels.
+     */
+    static LocalDateTime fromMinutes(long minutes) {
+        if (minutes < MIN_MINUTES) {
+            return LocalDateTime.MIN;
+        }
+        if (minutes > MAX_MINUTES) {
+            return LocalDateTime.MAX;
+        }
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    static byte typeCode(Event e) {
+        if (e instanceof Appointment) {
+            return TYPE_APPOINTMENT;
+        } else if (e instanceof Deadline) {
+            return TYPE_DEADLINE;
+        }
+        throw new IllegalArgumentException("Unsupported event type: " + e.getType());
+    }
+
+    /**
+     * @return The event's end in epoch minutes; for a recurring event, the end of its last
+     *         occurrence, or {@link Long#MAX_VALUE} if it never stops.
+     */
+    static long spanEnd(Event e, long start) {
+        RecurrenceRule rule = e.getRecurrence();
+        if (rule == null) {
+            return start + e.getDurationMinutes();
+        }
+        long last = rule.lastIndex(e.getStartTime());
+        if (last == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        if (last < 0) {
+            return start; // No occurrences at all
+        }
+        return toMinutes(rule.occurrence(e.getStartTime(), last)) + e.getDurationMinutes();
+    }
+
+    int size() {
+        return slotById.size();
+    }
+
+    /**
+     * @return The number of removed rows still taking up space.
+     */
+    int getGarbage() {
+        return highWater - slotById.size();
+    }
+
+    /**
+     * @return The rows written so far, safe to hand to readers.
+     */
+    Rows rows() {
+        return rows;
+    }
+
+    /**
+     * @return The slot holding the event with this ID, or -1.
+     */
+    int slotOf(String eventId) {
+        Integer slot = slotById.get(eventId);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Appends an event as a new row. The caller must remove any previous version first.
+     *
+     * @return The slot now holding the event.
+     */
+    int insert(Event e) {
+        byte type = typeCode(e);
+        int slot = allocate();
+        long start = toMinutes(e.getStartTime());
+        rows.starts[slot] = start;
+        rows.ends[slot] = spanEnd(e, start);
+        rows.durations[slot] = e.getDurationMinutes();
+        rows.types[slot] = type;
+        rows.ids[slot] = e.getEventId();
+        rows.titles[slot] = e.getTitle();
+        rows.descriptions[slot] = e.getDescription();
+        rows.details[slot] = e.getDetail();
+        rows.reminders[slot] = e.hasDefaultReminders() ? null : e.getReminderOffsets();
+        rows.recurrences[slot] = e.getRecurrence();
+        slotById.put(e.getEventId(), slot);
+        return slot;
+    }
+
+    /**
+     * Appends a copy of another table's row without materializing it.
+     *
+     * @return The slot now holding the event.
+     */
+    int copy(Rows from, int fromSlot) {
+        int slot = allocate();
+        rows.starts[slot] = from.starts[fromSlot];
+        rows.ends[slot] = from.ends[fromSlot];
+        rows.durations[slot] = from.durations[fromSlot];
+        rows.types[slot] = from.types[fromSlot];
+        rows.ids[slot] = from.ids[fromSlot];
+        rows.titles[slot] = from.titles[fromSlot];
+        rows.descriptions[slot] = from.descriptions[fromSlot];
+        rows.details[slot] = from.details[fromSlot];
+        rows.reminders[slot] = from.reminders[fromSlot];
+        rows.recurrences[slot] = from.recurrences[fromSlot];
+        slotById.put(from.ids[fromSlot], slot);
+        return slot;
+    }
+
+    /**
+     * Forgets the event in this slot. The row itself is left intact for readers of older views.
+     */
+    void remove(int slot) {
+        slotById.remove(rows.ids[slot], slot);
+    }
+
+    private int allocate() {
+        if (highWater == rows.starts.length) {
+            // Grow into new arrays; views handed out earlier keep the old ones
+            rows = new Rows(rows, rows.starts.length * 2);
+        }
+        return highWater++;
+    }
+}
@@ -0,0 +1,156 @@
+package storage;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds free time slots with a single forward walk over the busy intervals in an
+ * {@link EventSnapshot}. Each gap between busy intervals (optionally clipped to a
+ * daily working-hours window) yields at most one slot: its earliest start.
+ * <p>
+ * Occurrences of recurring events within the search window are computed up front
+ * and merged into the walk over the one-off events.
+ * The snapshot is immutable, so a finder needs no locking.
+ */
+class FreeSlotFinder {
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final EventSnapshot snapshot;
+
+    FreeSlotFinder(EventSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Collects up to {@code maxResults} slot starts, earliest first.
+     *
+     * @param from            Earliest allowed slot start.
+     * @param durationMinutes Required slot length (must be > 0).
+     * @param maxResults      Maximum number of slots to return (must be >= 0).
+     * @param latestStart     Latest allowed slot start (the search horizon).
+     * @param workStart       Start of the daily window, or null for no window.
+     * @param workEnd         End of the daily window, or null for no window.
+     * @return The slot starts, in ascending order.
+     */
+    List<LocalDateTime> find(LocalDateTime from, int durationMinutes, int maxResults,
+                             LocalDateTime latestStart, LocalTime workStart, LocalTime workEnd) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive.");
+        }
+        if (maxResults < 0) {
+            throw new IllegalArgumentException("Maximum number of slots must not be negative.");
+        }
+        if ((workStart == null) != (workEnd == null)) {
+            throw new IllegalArgumentException("Working hours need both a start and an end.");
+        }
+        if (workStart != null && !workStart.isBefore(workEnd)) {
+            throw new IllegalArgumentException("Working hours must start before they end.");
+        }
+        if (maxResults == 0) {
+            return new ArrayList<>(); // Nothing to find; the scan adds a slot before it checks the limit
+        }
+
+        Scan scan = new Scan(durationMinutes, maxResults,
+                EventTable.toMinutes(latestStart),
+                workStart == null ? -1 : workStart.toSecondOfDay() / 60,
+                workEnd == null ? -1 : workEnd.toSecondOfDay() / 60);
+        scan.cursor = EventTable.toMinutes(from);
+
+        long horizonEnd = scan.latestStart + durationMinutes;
+        if (scan.cursor <= scan.latestStart) {
+            long[][] occurrences = occurrences(scan.cursor, horizonEnd);
+            int[] next = {0};
+            boolean complete = snapshot.getIndex().forEachOverlapping(scan.cursor, horizonEnd, (start, end, slot) -> {
+                for (; next[0] < occurrences.length && occurrences[next[0]][0] <= start; next[0]++) {
+                    if (!scan.busy(occurrences[next[0]][0], occurrences[next[0]][1])) {
+                        return false;
+                    }
+                }
+                return scan.busy(start, end);
+            });
+            for (; complete && next[0] < occurrences.length; next[0]++) {
+                complete = scan.busy(occurrences[next[0]][0], occurrences[next[0]][1]);
+            }
+            if (complete && scan.cursor <= scan.latestStart) {
+                scan.gap(scan.cursor, horizonEnd);
+            }
+        }
+        return scan.results;
+    }
+
+    // The [start, end) of each recurring event occurrence overlapping the window, by start
+    private long[][] occurrences(long from, long to) {
+        List<long[]> found = new ArrayList<>();
+        snapshot.forEachOccurrence(from, to, (start, end, slot) -> {
+            found.add(new long[]{start, end});
+            return true;
+        });
+        long[][] sorted = found.toArray(new long[0][]);
+        Arrays.sort(sorted, Comparator.comparingLong(o -> o[0]));
+        return sorted;
+    }
+
+    // Mutable state for one walk, shared with the index visitor
+    private static final class Scan {
+        final int duration;
+        final int maxResults;
+        final long latestStart;
+        final long workStart; // minute of day, or -1
+        final long workEnd;
+        final List<LocalDateTime> results = new ArrayList<>();
+        long cursor;
+
+        Scan(int duration, int maxResults, long latestStart, long workStart, long workEnd) {
+            this.duration = duration;
+            this.maxResults = maxResults;
+            this.latestStart = latestStart;
+            this.workStart = workStart;
+            this.workEnd = workEnd;
+        }
+
+        /**
+         * Marks [start, end) busy, first offering the gap before it. Intervals must come in start order.
+         *
+         * @return false once enough slots have been collected or the horizon is passed.
+         */
+        boolean busy(long start, long end) {
+            if (start > cursor && !gap(cursor, start)) {
+                return false;
+            }
+            cursor = Math.max(cursor, end);
+            return cursor <= latestStart;
+        }
+
+        /**
+         * Offers the free gap [gapStart, gapEnd).
+         *
+         * @return false once enough slots have been collected.
+         */
+        boolean gap(long gapStart, long gapEnd) {
+            if (workStart < 0) {
+                if (gapEnd - gapStart >= duration && gapStart <= latestStart) {
+                    results.add(EventTable.fromMinutes(gapStart));
+                }
+                return results.size() < maxResults;
+            }
+            // Clip the gap against each day's working window it touches
+            long day = Math.floorDiv(gapStart, MINUTES_PER_DAY) * MINUTES_PER_DAY;
+            for (; day < gapEnd && results.size() < maxResults; day += MINUTES_PER_DAY) {
+                long start = Math.max(gapStart, day + workStart);
+                long end = Math.min(gapEnd, day + workEnd);
+                if (start > latestStart) {
+                    break;
+                }
+                if (end - start >= duration) {
+                    results.add(EventTable.fromMinutes(start));
+                }
+            }
+            return results.size() < maxResults;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package storage;
+
+import model.Appointment;
+import model.Deadline;
+import model.Event;
+import model.RecurrenceRule;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass streaming reader for iCalendar (.ics) files.
+ * <p>
+ * Reads one unfolded content line at a time and builds each {@link Event} as soon as
+ * its VEVENT closes, so memory stays bounded by the largest single event rather than
+ * the file. Other components (VTODO, VTIMEZONE, ...) are skipped.
+ * <p>
+ * Mapping: SUMMARY, DESCRIPTION and UID map directly; DTEND or DURATION gives the
+ * duration; LOCATION is an appointment's location. {@code X-CALLY-TYPE:DEADLINE}
+ * (written by {@link IcsWriter}) makes a deadline, with its course in CATEGORIES.
+ * Each VALARM's TRIGGER before the start is a reminder offset; an event without alarms
+ * gets the default reminders unless marked {@code X-CALLY-REMINDERS:NONE}. RRULE and
+ * EXDATE become a {@link RecurrenceRule} (parts it can't express, such as BYDAY, are
+ * ignored; YEARLY is read as every 12 months).
+ * <p>
+ * Event times are zone-less, so UTC and TZID times (and an RRULE's UTC UNTIL) are
+ * converted to the system time zone, and floating times are taken as they are. All-day
+ * dates start at midnight.
+ */
+class IcsReader {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final BufferedReader in;
+    private String pending; // Lookahead line, for unfolding
+    private long lineNumber;
+
+    // The VEVENT being read
+    private final StringBuilder value = new StringBuilder();
+    private String uid;
+    private String summary;
+    private String description;
+    private String location;
+    private String categories;
+    private boolean deadline;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Duration duration;
+    private boolean allDay;
+    private String rrule;
+    private final TreeSet<LocalDate> exdates = new TreeSet<>();
+    private final List<Integer> alarms = new ArrayList<>();
+    private boolean noReminders;
+
+    IcsReader(Reader in) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    /**
+     * Reads every VEVENT in the input, handing each to {@code sink} in file order.
+     * Events that can't be represented are reported and skipped.
+     *
+     * @return The number of events read.
+     * @throws IOException On read errors.
+     */
+    int readAll(Consumer<Event> sink) throws IOException {
+        int count = 0;
+        int skipDepth = 0; // Nesting depth inside components we don't read
+        boolean inEvent = false;
+        boolean inAlarm = false;
+        String line;
+        while ((line = readLine()) != null) {
+            int colon = nameEnd(line);
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon);
+            String params = "";
+            int semi = name.indexOf(';');
+            if (semi >= 0) {
+                params = name.substring(semi + 1);
+                name = name.substring(0, semi);
+            }
+            name = name.toUpperCase(Locale.ROOT);
+            String raw = line.substring(colon + 1);
+
+            if ("BEGIN".equals(name)) {
+                String component = raw.trim().toUpperCase(Locale.ROOT);
+                if (skipDepth > 0) {
+                    skipDepth++;
+                } else if (!inEvent && "VEVENT".equals(component)) {
+                    inEvent = true;
+                    reset();
+                } else if (inEvent && !inAlarm && "VALARM".equals(component)) {
+                    inAlarm = true;
+                } else if (!"VCALENDAR".equals(component)) {
+                    skipDepth = 1;
+                }
+                continue;
+            }
+            if ("END".equals(name)) {
+                String component = raw.trim().toUpperCase(Locale.ROOT);
+                if (skipDepth > 0) {
+                    skipDepth--;
+                } else if (inAlarm && "VALARM".equals(component)) {
+                    inAlarm = false;
+                } else if (inEvent && "VEVENT".equals(component)) {
+                    inEvent = false;
+                    if (emit(sink)) {
+                        count++;
+                    }
+                }
+                continue;
+            }
+            if (skipDepth > 0 || !inEvent) {
+                continue;
+            }
+            try {
+                if (inAlarm) {
+                    if ("TRIGGER".equals(name)) {
+                        readTrigger(params, raw);
+                    }
+                } else {
+                    readProperty(name, params, raw);
+                }
+            } catch (DateTimeException | IllegalArgumentException e) {
+                System.err.println("Ignoring bad " + name + " on line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private void readProperty(String name, String params, String raw) {
+        switch (name) {
+            case "UID": uid = unescape(raw); break;
+            case "SUMMARY": summary = unescape(raw); break;
+            case "DESCRIPTION": description = unescape(raw); break;
+            case "LOCATION": location = unescape(raw); break;
+            case "CATEGORIES": categories = unescape(raw); break;
+            case "X-CALLY-TYPE": deadline = "DEADLINE".equalsIgnoreCase(raw.trim()); break;
+            case "X-CALLY-REMINDERS": noReminders = "NONE".equalsIgnoreCase(raw.trim()); break;
+            case "DTSTART":
+                allDay = raw.trim().length() == 8;
+                start = parseTime(params, raw.trim());
+                break;
+            case "DTEND": end = parseTime(params, raw.trim()); break;
+            case "DURATION": duration = parseDuration(raw.trim()); break;
+            case "RRULE": rrule = raw.trim(); break;
+            case "EXDATE":
+                for (String time : raw.split(",")) {
+                    if (!time.isBlank()) {
+                        exdates.add(parseTime(params, time.trim()).toLocalDate());
+                    }
+                }
+                break;
+            default:
+                // Properties we don't map are ignored
+        }
+    }
+
+    // Reminders are alarms before (or at) the start; anything else can't be expressed
+    private void readTrigger(String params, String raw) {
+        String trigger = raw.trim();
+        String upper = params.toUpperCase(Locale.ROOT);
+        if (upper.contains("RELATED=END") || upper.contains("VALUE=DATE-TIME")) {
+            return;
+        }
+        long minutes = parseDuration(trigger).toMinutes();
+        if (minutes <= 0 && -minutes <= Integer.MAX_VALUE) {
+            alarms.add((int) -minutes);
+        }
+    }
+
+    private boolean emit(Consumer<Event> sink) {
+        try {
+            if (start == null) {
+                throw new IllegalArgumentException("no DTSTART");
+            }
+            int minutes;
+            if (end != null) {
+                minutes = (int) ChronoUnit.MINUTES.between(start, end);
+            } else if (duration != null) {
+                minutes = (int) duration.toMinutes();
+            } else {
+                minutes = allDay ? 24 * 60 : 0; // Validated by Event
+            }
+            int[] reminders = null;
+            if (!alarms.isEmpty()) {
+                reminders = alarms.stream().mapToInt(Integer::intValue).toArray();
+            } else if (noReminders) {
+                reminders = new int[0];
+            }
+            RecurrenceRule rule = rrule == null ? null : recurrence(rrule);
+            String id = uid != null && !uid.isBlank() ? uid : UUID.randomUUID().toString();
+            String desc = description != null ? description : "";
+            if (deadline) {
+                sink.accept(new Deadline(id, summary, desc, start, minutes, categories != null ? categories : "",
+                        reminders, rule));
+            } else {
+                sink.accept(new Appointment(id, summary, desc, start, minutes, location != null ? location : "",
+                        reminders, rule));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // IllegalArgumentException from Event or the recurrence rule
+            System.err.println("Skipping VEVENT " + uid + " ending on line " + lineNumber + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private RecurrenceRule recurrence(String text) {
+        // YEARLY isn't a frequency of ours, but is the same as every 12 months
+        StringBuilder rule = new StringBuilder();
+        int interval = 1;
+        boolean yearly = false;
+        for (String part : text.split(";")) {
+            String upper = part.toUpperCase(Locale.ROOT);
+            if ("FREQ=YEARLY".equals(upper)) {
+                yearly = true;
+                part = "FREQ=MONTHLY";
+            } else if (upper.startsWith("INTERVAL=")) {
+                interval = Integer.parseInt(part.substring("INTERVAL=".length()).trim());
+                continue;
+            } else if (upper.startsWith("UNTIL=") && upper.endsWith("Z")) {
+                // A UTC limit, converted like DTSTART so it compares with the local start times
+                part = "UNTIL=" + parseTime("", part.substring("UNTIL=".length()).trim()).format(DATE_TIME);
+            }
+            rule.append(part).append(';');
+        }
+        rule.append("INTERVAL=").append(yearly ? interval * 12 : interval);
+        RecurrenceRule parsed = RecurrenceRule.parse(rule.toString());
+        if (exdates.isEmpty()) {
+            return parsed;
+        }
+        return new RecurrenceRule(parsed.getFrequency(), parsed.getInterval(), parsed.getCount(), parsed.getUntil(),
+                exdates);
+    }
+
+    private void reset() {
+        uid = null;
+        summary = null;
+        description = null;
+        location = null;
+        categories = null;
+        deadline = false;
+        start = null;
+        end = null;
+        duration = null;
+        allDay = false;
+        rrule = null;
+        exdates.clear();
+        alarms.clear();
+        noReminders = false;
+    }
+
+    // Reads the next content line, joining folded continuation lines
+    private String readLine() throws IOException {
+        String line = pending != null ? pending : in.readLine();
+        pending = null;
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+        String next = in.readLine();
+        if (next == null || next.isEmpty() || (next.charAt(0) != ' ' && next.charAt(0) != '\t')) {
+            pending = next;
+            return line;
+        }
+        StringBuilder unfolded = new StringBuilder(line);
+        while (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+            unfolded.append(next, 1, next.length());
+            lineNumber++;
+            next = in.readLine();
+        }
+        pending = next;
+        return unfolded.toString();
+    }
+
+    // The index of the ':' ending the property name and parameters, skipping quoted parameter values
+    private static int nameEnd(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static LocalDateTime parseTime(String params, String text) {
+        if (text.length() == 8) {
+            return LocalDate.parse(text, DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay();
+        }
+        if (text.endsWith("Z")) {
+            return LocalDateTime.parse(text.substring(0, text.length() - 1), DATE_TIME)
+                    .atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        LocalDateTime time = LocalDateTime.parse(text, DATE_TIME);
+        String tzid = param(params, "TZID");
+        if (tzid != null) {
+            try {
+                return time.atZone(ZoneId.of(tzid)).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeException e) {
+                // A zone name Java doesn't know (e.g. a Windows name): take the time as it is
+            }
+        }
+        return time;
+    }
+
+    private static String param(String params, String name) {
+        for (String param : params.split(";")) {
+            if (param.regionMatches(true, 0, name + "=", 0, name.length() + 1)) {
+                String value = param.substring(name.length() + 1);
+                return value.startsWith("\"") && value.endsWith("\"") && value.length() > 1
+                        ? value.substring(1, value.length() - 1) : value;
+            }
+        }
+        return null;
+    }
+
+    // RFC 5545 durations, which unlike java.time's may use weeks
+    private static Duration parseDuration(String text) {
+        String upper = text.toUpperCase(Locale.ROOT);
+        int w = upper.indexOf('W');
+        if (w < 0) {
+            return Duration.parse(upper);
+        }
+        boolean negative = upper.startsWith("-");
+        int p = upper.indexOf('P');
+        Duration weeks = Duration.ofDays(7 * Long.parseLong(upper.substring(p + 1, w)));
+        return negative ? weeks.negated() : weeks;
+    }
+
+    // Undoes TEXT escaping: \\ \; \, and \n
+    private String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        value.setLength(0);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                value.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package storage;
+
+import model.Deadline;
+import model.Event;
+import model.RecurrenceRule;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streaming iCalendar (.ics) writer: each {@link Event} is written as a VEVENT as soon
+ * as it is passed in, so a calendar of any size is written in constant memory.
+ * <p>
+ * Times are written as floating local times, since event times are zone-less. The
+ * mapping is the one {@link IcsReader} reads back, including a VALARM per reminder
+ * offset and recurring events as RRULE plus EXDATE. Lines are folded at 75 octets.
+ */
+class IcsWriter implements Closeable {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final Writer out;
+    private final String stamp;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Writes the calendar header. The writer should encode UTF-8, and is closed by {@link #close()}.
+     */
+    IcsWriter(Writer out) throws IOException {
+        this.out = out;
+        this.stamp = LocalDateTime.now(ZoneOffset.UTC).format(DATE_TIME) + "Z";
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//Cally//Cally Calendar//EN");
+    }
+
+    void write(Event e) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeText("UID", e.getEventId());
+        writeLine("DTSTAMP:" + stamp);
+        writeLine("DTSTART:" + e.getStartTime().format(DATE_TIME));
+        writeLine("DTEND:" + e.getEndTime().format(DATE_TIME));
+        writeText("SUMMARY", e.getTitle());
+        if (!e.getDescription().isEmpty()) {
+            writeText("DESCRIPTION", e.getDescription());
+        }
+        if (e instanceof Deadline) {
+            writeLine("X-CALLY-TYPE:DEADLINE");
+            if (!e.getDetail().isEmpty()) {
+                writeText("CATEGORIES", e.getDetail());
+            }
+        } else if (!e.getDetail().isEmpty()) {
+            writeText("LOCATION", e.getDetail());
+        }
+        RecurrenceRule rule = e.getRecurrence();
+        if (rule != null) {
+            writeLine("RRULE:" + rule.toRRule());
+            if (!rule.getExceptions().isEmpty()) {
+                line.setLength(0);
+                line.append("EXDATE:");
+                boolean first = true;
+                for (LocalDate date : rule.getExceptions()) {
+                    if (!first) {
+                        line.append(',');
+                    }
+                    first = false;
+                    line.append(date.atTime(e.getStartTime().toLocalTime()).format(DATE_TIME));
+                }
+                writeLine(line);
+            }
+        }
+        int[] reminders = e.getReminderOffsets();
+        if (reminders.length == 0) {
+            writeLine("X-CALLY-REMINDERS:NONE");
+        }
+        for (int offset : reminders) {
+            writeLine("BEGIN:VALARM");
+            writeLine("ACTION:DISPLAY");
+            writeText("DESCRIPTION", e.getTitle());
+            writeLine("TRIGGER:-PT" + offset + "M");
+            writeLine("END:VALARM");
+        }
+        writeLine("END:VEVENT");
+    }
+
+    /**
+     * Writes the calendar footer and closes the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeLine("END:VCALENDAR");
+        } finally {
+            out.close();
+        }
+    }
+
+    // Writes a TEXT property, escaping \ ; , and newlines
+    private void writeText(String name, String value) throws IOException {
+        line.setLength(0);
+        line.append(name).append(':');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': case ';': case ',': line.append('\\').append(c); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': break;
+                default: line.append(c);
+            }
+        }
+        writeLine(line);
+    }
+
+    // Writes a content line, folded so no physical line exceeds 75 UTF-8 octets
+    private void writeLine(CharSequence text) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : 3;
+            if (octets + size > MAX_LINE_OCTETS) {
+                out.write("\r\n ");
+                octets = 1;
+            }
+            out.write(c);
+            if (size == 4 && i + 1 < text.length()) {
+                out.write(text.charAt(++i)); // Keep surrogate pairs together
+            }
+            octets += size;
+        }
+        out.write("\r\n");
+    }
+}
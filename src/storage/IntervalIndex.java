@@ -0,0 +1,315 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * Immutable ordered index of event slots (see {@link EventTable}) keyed on their time interval.
+ * <p>
+ * Implemented as a treap ordered by (start, slot) where every node also stores
+ * the maximum end time and the size of its subtree. Overlap queries can therefore
+ * skip whole subtrees that end before the query window, in-order traversal returns
+ * the matches already sorted by start time, and counting starts before a time
+ * takes O(log n).
+ * <p>
+ * Updates return a new index that shares all but O(log n) nodes with the old one
+ * (path copying), so a published index can be walked by any number of threads
+ * without locking while a writer derives the next version.
+ */
+final class IntervalIndex {
+
+    static final IntervalIndex EMPTY = new IntervalIndex(null, 0);
+
+    /**
+     * Callback for in-order walks over overlapping intervals.
+     */
+    interface Visitor {
+        /**
+         * @return false to stop the walk early.
+         */
+        boolean visit(long start, long end, int slot);
+    }
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final int slot;
+        final int priority;
+        final long maxEnd;
+        final int size;
+        final Node left;
+        final Node right;
+
+        Node(long start, long end, int slot, int priority, Node left, Node right) {
+            this.start = start;
+            this.end = end;
+            this.slot = slot;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            long max = end;
+            if (left != null && left.maxEnd > max) max = left.maxEnd;
+            if (right != null && right.maxEnd > max) max = right.maxEnd;
+            this.maxEnd = max;
+            this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(start, end, slot, priority, left, right);
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private IntervalIndex(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an index that also holds a slot's interval [start, end) (in epoch minutes).
+     */
+    public IntervalIndex insert(int slot, long start, long end) {
+        return new IntervalIndex(insert(root, new Node(start, end, slot, priority(slot), null, null)), size + 1);
+    }
+
+    /**
+     * Returns an index without the slot, matched by its start time and slot number,
+     * or this index if the slot isn't in it.
+     */
+    public IntervalIndex remove(int slot, long start) {
+        Node removed = remove(root, start, slot);
+        // Removal copies the path to the match, so an unchanged root means no match
+        return removed == root ? this : new IntervalIndex(removed, size - 1);
+    }
+
+    /**
+     * @return true if the index holds the slot, matched by its start time and slot number.
+     */
+    public boolean contains(int slot, long start) {
+        Node n = root;
+        while (n != null) {
+            int c = compare(start, slot, n);
+            if (c == 0) {
+                return true;
+            }
+            n = c < 0 ? n.left : n.right;
+        }
+        return false;
+    }
+
+    /**
+     * Visits every interval overlapping [from, to) (in epoch minutes) in start order.
+     *
+     * @return false if the visitor stopped the walk early.
+     */
+    public boolean forEachOverlapping(long from, long to, Visitor visitor) {
+        return walk(root, from, to, visitor);
+    }
+
+    /**
+     * Visits every interval in start order.
+     *
+     * @return false if the visitor stopped the walk early.
+     */
+    public boolean forEach(Visitor visitor) {
+        return walk(root, Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * @return The number of intervals starting before {@code time} (in epoch minutes).
+     */
+    public int countStartingBefore(long time) {
+        int count = 0;
+        Node n = root;
+        while (n != null) {
+            if (n.start < time) {
+                count += 1 + (n.left == null ? 0 : n.left.size);
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a cursor over the intervals overlapping [from, to) (in epoch minutes), in start order.
+     * Unlike the walks, the caller pulls matches one at a time and may stop at any point.
+     */
+    public Cursor cursor(long from, long to) {
+        return new Cursor(root, from, to, Long.MIN_VALUE);
+    }
+
+    /**
+     * Like {@link #cursor(long, long)}, positioned at the first match starting at or after
+     * {@code minStart}; the intervals before it are skipped in O(log n).
+     */
+    public Cursor cursor(long from, long to, long minStart) {
+        return new Cursor(root, from, to, minStart);
+    }
+
+    /**
+     * Pull-style in-order walk, keeping the path to the next match on an explicit stack.
+     */
+    static final class Cursor {
+        private final long from;
+        private final long to;
+        private Node[] stack = new Node[32];
+        private int depth;
+        private Node current;
+
+        private Cursor(Node root, long from, long to, long minStart) {
+            this.from = from;
+            this.to = to;
+            // Stack the path to the first key starting at or after minStart
+            Node n = root;
+            while (n != null && n.maxEnd > from) {
+                if (n.start < minStart) {
+                    n = n.right; // n and its left subtree start too early
+                } else {
+                    push(n);
+                    n = n.left;
+                }
+            }
+        }
+
+        /**
+         * Moves to the next match.
+         *
+         * @return false once there are no more.
+         */
+        boolean next() {
+            while (depth > 0) {
+                Node n = stack[--depth];
+                if (n.start >= to) {
+                    break; // This and everything after it start after the window closes
+                }
+                pushLeft(n.right);
+                if (n.end > from) {
+                    current = n;
+                    return true;
+                }
+            }
+            depth = 0;
+            current = null;
+            return false;
+        }
+
+        long start() {
+            return current.start;
+        }
+
+        long end() {
+            return current.end;
+        }
+
+        int slot() {
+            return current.slot;
+        }
+
+        // Pushes n and its left spine, skipping subtrees that end before the window opens
+        private void pushLeft(Node n) {
+            while (n != null && n.maxEnd > from) {
+                push(n);
+                n = n.left;
+            }
+        }
+
+        private void push(Node n) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = n;
+        }
+    }
+
+    // Priorities are a hash of the slot, so updates need no shared random state
+    private static int priority(int slot) {
+        int h = slot * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int compare(long start, int slot, Node n) {
+        int c = Long.compare(start, n.start);
+        return c != 0 ? c : Integer.compare(slot, n.slot);
+    }
+
+    private static Node insert(Node n, Node x) {
+        if (n == null) {
+            return x;
+        }
+        if (x.priority > n.priority) {
+            // x becomes the root of this subtree: split n around x's key
+            Node[] parts = split(n, x.start, x.slot);
+            return x.with(parts[0], parts[1]);
+        }
+        if (compare(x.start, x.slot, n) < 0) {
+            return n.with(insert(n.left, x), n.right);
+        }
+        return n.with(n.left, insert(n.right, x));
+    }
+
+    // Splits into keys < (start, slot) and keys >= (start, slot)
+    private static Node[] split(Node n, long start, int slot) {
+        if (n == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(start, slot, n) > 0) {
+            Node[] parts = split(n.right, start, slot);
+            return new Node[]{n.with(n.left, parts[0]), parts[1]};
+        } else {
+            Node[] parts = split(n.left, start, slot);
+            return new Node[]{parts[0], n.with(parts[1], n.right)};
+        }
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            return a.with(a.left, merge(a.right, b));
+        } else {
+            return b.with(merge(a, b.left), b.right);
+        }
+    }
+
+    private static Node remove(Node n, long start, int slot) {
+        if (n == null) {
+            return null;
+        }
+        int c = compare(start, slot, n);
+        if (c == 0) {
+            return merge(n.left, n.right);
+        }
+        if (c < 0) {
+            Node left = remove(n.left, start, slot);
+            return left == n.left ? n : n.with(left, n.right);
+        }
+        Node right = remove(n.right, start, slot);
+        return right == n.right ? n : n.with(n.left, right);
+    }
+
+    private static boolean walk(Node n, long from, long to, Visitor visitor) {
+        if (n == null || n.maxEnd <= from) {
+            return true; // Nothing in this subtree ends after the window opens
+        }
+        if (!walk(n.left, from, to, visitor)) {
+            return false;
+        }
+        if (n.start >= to) {
+            return true; // This node and its right subtree start after the window closes
+        }
+        if (n.end > from && !visitor.visit(n.start, n.end, n.slot)) {
+            return false;
+        }
+        return walk(n.right, from, to, visitor);
+    }
+}
@@ -0,0 +1,142 @@
+package storage;
+
+import model.Event;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Folds the event journal into a fresh snapshot on a background thread.
+ * <p>
+ * A compaction seals the active journal segment (a rename under the journal's
+ * lock, so writers only ever wait for that), then rebuilds the snapshot from the
+ * previous snapshot file plus the sealed segments entirely off-lock. The new
+ * snapshot replaces the old one with an atomic move before the sealed segments
+ * are deleted, so a crash at any point still replays to the same state.
+ * <p>
+ * It never reads {@link CalendarStorage}'s in-memory state, so readers are not blocked at all.
+ */
+class JournalCompactor {
+
+    // Don't bother compacting tiny journals, however large relative to the calendar
+    private static final int MIN_RECORDS_FOR_RATIO = 256;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Path snapshotFile;
+    private final SnapshotFormat format;
+    private final EventJournal journal;
+    private final IntSupplier liveEventCount;
+    private final long maxJournalBytes;
+    private final double maxRecordRatio;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param snapshotFile   The snapshot the journal applies to.
+     * @param format         The format to write the new snapshot in.
+     * @param journal        The journal to fold.
+     * @param liveEventCount Current number of events, for the ratio trigger.
+     * @param maxJournalBytes Compact once the journal reaches this many bytes.
+     * @param maxRecordRatio  Compact once journal records per live event reach this ratio.
+     */
+    JournalCompactor(Path snapshotFile, SnapshotFormat format, EventJournal journal, IntSupplier liveEventCount,
+                     long maxJournalBytes, double maxRecordRatio) {
+        this.snapshotFile = snapshotFile;
+        this.format = format;
+        this.journal = journal;
+        this.liveEventCount = liveEventCount;
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxRecordRatio = maxRecordRatio;
+    }
+
+    /**
+     * Starts checking the triggers every {@code checkIntervalMillis} on a daemon thread.
+     */
+    synchronized void start(long checkIntervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::compactIfNeeded,
+                checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background checks, letting a compaction in progress finish.
+     */
+    void shutdown() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            running.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean shouldCompact() {
+        int records = journal.getPendingRecords();
+        if (records == 0) {
+            return false;
+        }
+        if (journal.getPendingBytes() >= maxJournalBytes) {
+            return true;
+        }
+        return records >= MIN_RECORDS_FOR_RATIO
+                && records >= maxRecordRatio * Math.max(1, liveEventCount.getAsInt());
+    }
+
+    private void compactIfNeeded() {
+        if (shouldCompact()) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds all journal records written so far into the snapshot.
+     * Safe to call from any thread; compactions never overlap.
+     */
+    synchronized void compact() {
+        try {
+            List<Path> segments = journal.seal();
+            if (segments.isEmpty()) {
+                return;
+            }
+
+            Map<String, Event> events = new LinkedHashMap<>();
+            SnapshotFormat.readAny(snapshotFile, e -> events.put(e.getEventId(), e));
+            for (Path segment : segments) {
+                EventJournal.replaySegment(segment, e -> events.put(e.getEventId(), e), events::remove);
+            }
+
+            List<Event> sorted = new ArrayList<>(events.values());
+            sorted.sort(Comparator.comparing(Event::getStartTime));
+            format.write(snapshotFile, sorted); // Atomic replace
+
+            journal.discard(segments);
+        } catch (IOException e) {
+            // Sealed segments stay on disk and are picked up by the next compaction
+            System.err.println("Failed to compact event journal: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
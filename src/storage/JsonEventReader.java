@@ -0,0 +1,385 @@
+package storage;
+
+import model.Appointment;
+import model.Deadline;
+import model.Event;
+import model.RecurrenceRule;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass streaming reader for the event JSON format written by {@link JsonUtil}.
+ * <p>
+ * Reads characters straight from a {@link Reader} through a fixed-size buffer and
+ * builds each {@link Event} as soon as its object closes, so memory stays bounded by
+ * the largest single event rather than the file. Accepts either a top-level array of
+ * event objects or a single event object. Unknown keys (including nested objects and
+ * arrays) are skipped. In an array, an element that is not well-formed is reported and
+ * skipped too: the reader resumes after the next '}' followed by ',' or ']'.
+ */
+class JsonEventReader {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long offset; // Characters consumed before buffer[0], for error messages
+    private int last = -1; // The character read() returned last, which a syntax error is about
+    private final StringBuilder text = new StringBuilder();
+
+    JsonEventReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads every event in the input, handing each to {@code sink} in file order.
+     * Array elements that are malformed JSON or not valid events are reported and skipped.
+     *
+     * @return The number of events read.
+     * @throws IOException On read errors, or JSON too broken to resume after (such as a
+     *                     truncated file or a malformed single top-level object).
+     */
+    int readAll(Consumer<Event> sink) throws IOException {
+        int c = skipWhitespace();
+        if (c == -1) {
+            return 0;
+        }
+        if (c == '{') {
+            return readObject(sink) ? 1 : 0;
+        }
+        expect(c, '[');
+        int count = 0;
+        c = skipWhitespace();
+        if (c == ']') {
+            return 0;
+        }
+        while (true) {
+            try {
+                expect(c, '{');
+                if (readObject(sink)) {
+                    count++;
+                }
+                c = skipWhitespace();
+                if (c != ']') {
+                    expect(c, ',');
+                }
+            } catch (SyntaxException e) {
+                System.err.println("Skipping malformed event object: " + e.getMessage());
+                c = resync(e.found);
+            }
+            if (c == ']') {
+                return count;
+            }
+            c = skipWhitespace(); // After the ','
+        }
+    }
+
+    // Skips past the rest of a malformed array element: to the next '}' followed by ',' or
+    // ']', returning that character. The scan starts at c, the character that broke the
+    // parse, as it may itself be the closing '}'. A '}' inside a string can end the skip
+    // early; the element after it then fails to parse and is skipped in turn.
+    private int resync(int c) throws IOException {
+        while (c != -1) {
+            if (c == '}') {
+                c = skipWhitespace();
+                if (c == ',' || c == ']') {
+                    return c;
+                }
+            } else {
+                c = read();
+            }
+        }
+        throw error("Unexpected end of input in a malformed event object");
+    }
+
+    // Reads the rest of an object whose '{' has been consumed
+    private boolean readObject(Consumer<Event> sink) throws IOException {
+        String type = null;
+        String id = null;
+        String title = null;
+        String description = null;
+        String startTime = null;
+        String detail = null;
+        int duration = 0;
+        int[] reminders = null; // Absent means the default
+        String recurrence = null; // Absent for one-off events
+
+        int c = skipWhitespace();
+        if (c != '}') {
+            while (true) {
+                expect(c, '"');
+                readString();
+                expect(skipWhitespace(), ':');
+                c = skipWhitespace();
+                if ("eventId".contentEquals(text)) {
+                    id = readStringValue(c);
+                } else if ("title".contentEquals(text)) {
+                    title = readStringValue(c);
+                } else if ("description".contentEquals(text)) {
+                    description = readStringValue(c);
+                } else if ("startTime".contentEquals(text)) {
+                    startTime = readStringValue(c);
+                } else if ("detail".contentEquals(text)) {
+                    detail = readStringValue(c);
+                } else if ("type".contentEquals(text)) {
+                    type = readStringValue(c);
+                } else if ("durationMinutes".contentEquals(text)) {
+                    duration = readInt(c);
+                } else if ("reminders".contentEquals(text)) {
+                    reminders = readIntArray(c);
+                } else if ("recurrence".contentEquals(text)) {
+                    recurrence = readStringValue(c);
+                } else {
+                    skipValue(c);
+                }
+                c = skipWhitespace();
+                if (c == '}') {
+                    break;
+                }
+                expect(c, ',');
+                c = skipWhitespace();
+            }
+        }
+
+        try {
+            LocalDateTime start = LocalDateTime.parse(startTime);
+            RecurrenceRule rule = recurrence == null ? null : RecurrenceRule.parse(recurrence);
+            if ("Appointment".equals(type)) {
+                sink.accept(new Appointment(id, title, description, start, duration, detail, reminders, rule));
+                return true;
+            } else if ("Deadline".equals(type)) {
+                sink.accept(new Deadline(id, title, description, start, duration, detail, reminders, rule));
+                return true;
+            }
+            System.err.println("Skipping event " + id + " with unknown type: " + type);
+        } catch (RuntimeException e) {
+            // DateTimeParseException, NullPointerException or IllegalArgumentException from Event
+            System.err.println("Failed to parse event object " + id + " near offset " + position()
+                    + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    private String readStringValue(int c) throws IOException {
+        if (c == 'n') {
+            skipLiteral("ull");
+            return null;
+        }
+        expect(c, '"');
+        readString();
+        return text.toString();
+    }
+
+    // Reads a string body (opening quote consumed) into 'text'
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case '"': text.append('"'); break;
+                case '\\': text.append('\\'); break;
+                case '/': text.append('/'); break;
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'n': text.append('\n'); break;
+                case 'r': text.append('\r'); break;
+                case 't': text.append('\t'); break;
+                case 'u': {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Bad \\u escape");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    text.append((char) code);
+                    break;
+                }
+                default:
+                    throw error("Bad escape");
+            }
+        }
+    }
+
+    private int readInt(int c) throws IOException {
+        boolean negative = c == '-';
+        if (negative) {
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw error("Expected a number");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("Number out of range");
+            }
+            c = read();
+        }
+        if (c == '.' || c == 'e' || c == 'E') {
+            throw error("Expected an integer");
+        }
+        unread(c);
+        return (int) (negative ? -value : value);
+    }
+
+    private int[] readIntArray(int c) throws IOException {
+        if (c == 'n') {
+            skipLiteral("ull");
+            return null;
+        }
+        expect(c, '[');
+        int[] values = new int[4];
+        int count = 0;
+        c = skipWhitespace();
+        if (c == ']') {
+            return new int[0];
+        }
+        while (true) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = readInt(c);
+            c = skipWhitespace();
+            if (c == ']') {
+                return Arrays.copyOf(values, count);
+            }
+            expect(c, ',');
+            c = skipWhitespace();
+        }
+    }
+
+    // Skips any JSON value starting with c
+    private void skipValue(int c) throws IOException {
+        switch (c) {
+            case '"':
+                readString();
+                return;
+            case '{':
+            case '[': {
+                int close = c == '{' ? '}' : ']';
+                c = skipWhitespace();
+                if (c == close) {
+                    return;
+                }
+                while (true) {
+                    if (close == '}') {
+                        expect(c, '"');
+                        readString();
+                        expect(skipWhitespace(), ':');
+                        c = skipWhitespace();
+                    }
+                    skipValue(c);
+                    c = skipWhitespace();
+                    if (c == close) {
+                        return;
+                    }
+                    expect(c, ',');
+                    c = skipWhitespace();
+                }
+            }
+            case 't':
+                skipLiteral("rue");
+                return;
+            case 'f':
+                skipLiteral("alse");
+                return;
+            case 'n':
+                skipLiteral("ull");
+                return;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    do {
+                        c = read();
+                    } while ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-');
+                    unread(c);
+                    return;
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void skipLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Bad literal");
+            }
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private void expect(int c, char expected) throws IOException {
+        if (c != expected) {
+            throw error(c == -1 ? "Unexpected end of input, expected '" + expected + "'"
+                    : "Expected '" + expected + "' but found '" + (char) c + "'");
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            offset += limit;
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                last = -1;
+                return -1;
+            }
+        }
+        last = buffer[pos++];
+        return last;
+    }
+
+    // Pushes back the last character returned by read()
+    private void unread(int c) {
+        if (c != -1) {
+            pos--;
+        }
+    }
+
+    private long position() {
+        return offset + pos;
+    }
+
+    private IOException error(String message) {
+        return new SyntaxException(message + " at offset " + position(), last);
+    }
+
+    /**
+     * Malformed input, as opposed to a failure to read it.
+     */
+    private static class SyntaxException extends IOException {
+        final int found; // The character the input broke at, or -1 at its end
+
+        SyntaxException(String message, int found) {
+            super(message);
+            this.found = found;
+        }
+    }
+}
@@ -1,141 +1,260 @@
 package storage;
 
-import model.Appointment;
-import model.Deadline;
 import model.Event;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * Minimal JSON serialization/deserialization helper using only core JDK.
- * This is a simple, non-compliant parser strictly for this application's Event model.
+ * Parsing is done by a streaming tokenizer ({@link JsonEventReader}) strictly for this application's Event model.
  */
 public class JsonUtil {
 
-    // Regex to find key-value pairs.
-    // Group 1: key
-    // Group 3: string value (if present)
-    // Group 4: numeric value (if present)
-    private static final Pattern KEY_VALUE_PATTERN = Pattern.compile("\"(.*?)\":\\s*(\"(.*?)\"|(\\d+))");
-
     /**
      * Serializes a list of Events to a simple JSON array string.
      */
     public static String serialize(List<Event> events) {
         StringBuilder sb = new StringBuilder();
-        sb.append("[\n");
-
-        for (int i = 0; i < events.size(); i++) {
-            Event event = events.get(i);
-            sb.append("  {\n");
-            sb.append("    \"eventId\": \"").append(escape(event.getEventId())).append("\",\n");
-            sb.append("    \"title\": \"").append(escape(event.getTitle())).append("\",\n");
-            sb.append("    \"description\": \"").append(escape(event.getDescription())).append("\",\n");
-            sb.append("    \"startTime\": \"").append(escape(event.getStartTime().toString())).append("\",\n");
-            sb.append("    \"durationMinutes\": ").append(event.getDurationMinutes()).append(",\n");
-            sb.append("    \"detail\": \"").append(escape(event.getDetail())).append("\",\n");
-            sb.append("    \"type\": \"").append(escape(event.getType())).append("\"\n");
-            sb.append("  }");
+        try {
+            write(sb, events);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
 
-            if (i < events.size() - 1) {
-                sb.append(",\n");
-            } else {
-                sb.append("\n");
+    /**
+     * Streams Events as a JSON array to {@code out}, one event at a time.
+     * Produces exactly the same text as {@link #serialize(List)}.
+     */
+    public static void write(Appendable out, Iterable<Event> events) throws IOException {
+        out.append("[\n");
+        boolean first = true;
+        for (Event event : events) {
+            if (!first) {
+                out.append(",\n");
+            }
+            first = false;
+            out.append("  {\n");
+            out.append("    \"eventId\": \"");
+            escape(out, event.getEventId());
+            out.append("\",\n    \"title\": \"");
+            escape(out, event.getTitle());
+            out.append("\",\n    \"description\": \"");
+            escape(out, event.getDescription());
+            out.append("\",\n    \"startTime\": \"");
+            escape(out, event.getStartTime().toString());
+            out.append("\",\n    \"durationMinutes\": ").append(Integer.toString(event.getDurationMinutes()));
+            out.append(",\n    \"detail\": \"");
+            escape(out, event.getDetail());
+            out.append("\",\n    \"type\": \"");
+            escape(out, event.getType());
+            out.append("\"");
+            if (!event.hasDefaultReminders()) {
+                out.append(",\n    \"reminders\": ");
+                appendOffsets(out, event.getReminderOffsets());
             }
+            if (event.isRecurring()) {
+                out.append(",\n    \"recurrence\": \"");
+                escape(out, event.getRecurrence().toString());
+                out.append("\"");
+            }
+            out.append("\n  }");
+        }
+        if (!first) {
+            out.append("\n");
         }
+        out.append("]\n");
+    }
 
-        sb.append("]\n");
+    /**
+     * Writes Events to a JSON file through a buffered writer, replacing the file
+     * atomically once the whole array is on disk.
+     */
+    public static void write(Path file, Iterable<Event> events) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            write(writer, events);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Serializes a single Event as a one-line JSON object (used for journal records).
+     */
+    static String serializeLine(Event event) {
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            sb.append("{\"eventId\": \"");
+            escape(sb, event.getEventId());
+            sb.append("\", \"title\": \"");
+            escape(sb, event.getTitle());
+            sb.append("\", \"description\": \"");
+            escape(sb, event.getDescription());
+            sb.append("\", \"startTime\": \"");
+            escape(sb, event.getStartTime().toString());
+            sb.append("\", \"durationMinutes\": ").append(event.getDurationMinutes());
+            sb.append(", \"detail\": \"");
+            escape(sb, event.getDetail());
+            sb.append("\", \"type\": \"");
+            escape(sb, event.getType());
+            sb.append("\"");
+            if (!event.hasDefaultReminders()) {
+                sb.append(", \"reminders\": ");
+                appendOffsets(sb, event.getReminderOffsets());
+            }
+            if (event.isRecurring()) {
+                sb.append(", \"recurrence\": \"");
+                escape(sb, event.getRecurrence().toString());
+                sb.append("\"");
+            }
+            sb.append("}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
         return sb.toString();
     }
 
+    // Writes reminder offsets as a JSON array of minutes. Only non-default reminders are written.
+    private static void appendOffsets(Appendable out, int[] offsets) throws IOException {
+        out.append('[');
+        for (int i = 0; i < offsets.length; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(Integer.toString(offsets[i]));
+        }
+        out.append(']');
+    }
+
     /**
      * Deserializes a JSON string into a List of Events.
+     * Malformed JSON is reported and the events read before the error are returned.
      */
     public static List<Event> deserialize(String json) {
         List<Event> events = new ArrayList<>();
-        if (json == null || json.isBlank() || json.equals("[]")) {
+        if (json == null || json.isBlank()) {
             return events;
         }
-
-        // Simple regex to find content inside { ... }
-        Pattern objectPattern = Pattern.compile("\\{(.*?)\\}", Pattern.DOTALL);
-        Matcher objectMatcher = objectPattern.matcher(json);
-
-        while (objectMatcher.find()) {
-            String objectString = objectMatcher.group(1);
-            Map<String, String> map = new HashMap<>();
-
-            Matcher kvMatcher = KEY_VALUE_PATTERN.matcher(objectString);
-            while (kvMatcher.find()) {
-                String key = kvMatcher.group(1);
-                String strVal = kvMatcher.group(3); // String value
-                String numVal = kvMatcher.group(4); // Numeric value
-
-                if (strVal != null) {
-                    map.put(key, unescape(strVal));
-                } else if (numVal != null) {
-                    map.put(key, numVal);
-                }
-            }
-
-            try {
-                String type = map.get("type");
-                String id = map.getOrDefault("eventId", UUID.randomUUID().toString());
-                String title = map.get("title");
-                String description = map.get("description");
-                LocalDateTime startTime = LocalDateTime.parse(map.get("startTime"));
-                int duration = Integer.parseInt(map.get("durationMinutes"));
-                String detail = map.get("detail");
-
-                if ("Appointment".equals(type)) {
-                    events.add(new Appointment(id, title, description, startTime, duration, detail));
-                } else if ("Deadline".equals(type)) {
-                    events.add(new Deadline(id, title, description, startTime, duration, detail));
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to parse event object: " + objectString);
-                e.printStackTrace();
-            }
+        try {
+            read(new StringReader(json), events::add);
+        } catch (IOException e) {
+            System.err.println("Failed to parse events JSON: " + e.getMessage());
         }
         return events;
     }
 
+    /**
+     * Deserializes a JSON event array from a Reader into a List of Events.
+     */
+    public static List<Event> deserialize(Reader reader) throws IOException {
+        List<Event> events = new ArrayList<>();
+        read(reader, events::add);
+        return events;
+    }
+
+    /**
+     * Streams a JSON event array from a Reader, handing each Event to {@code sink}
+     * as soon as it is parsed. Memory use is bounded by a single event.
+     *
+     * @return The number of events read.
+     * @throws IOException On read errors or malformed JSON.
+     */
+    public static int read(Reader reader, Consumer<Event> sink) throws IOException {
+        return new JsonEventReader(reader).readAll(sink);
+    }
+
     /**
      * Escapes special JSON characters in a string.
      */
-    private static String escape(String s) {
+    static String escape(String s) {
         if (s == null) {
             return "";
         }
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        try {
+            escape(sb, s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends {@code s} with special JSON characters escaped, in a single pass.
+     * Unescaped runs are copied in bulk.
+     */
+    static void escape(Appendable out, String s) throws IOException {
+        if (s == null) {
+            return;
+        }
+        int runStart = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String replacement;
+            switch (s.charAt(i)) {
+                case '\\': replacement = "\\\\"; break;
+                case '"': replacement = "\\\""; break;
+                case '\b': replacement = "\\b"; break;
+                case '\f': replacement = "\\f"; break;
+                case '\n': replacement = "\\n"; break;
+                case '\r': replacement = "\\r"; break;
+                case '\t': replacement = "\\t"; break;
+                default: continue;
+            }
+            out.append(s, runStart, i).append(replacement);
+            runStart = i + 1;
+        }
+        out.append(s, runStart, s.length());
     }
 
     /**
-     * Un-escapes special JSON characters.
+     * Un-escapes special JSON characters in a single pass.
      */
-    private static String unescape(String s) {
+    static String unescape(String s) {
         if (s == null) {
             return null;
         }
-        return s.replace("\\\\", "\\")
-                .replace("\\\"", "\"")
-                .replace("\\b", "\b")
-                .replace("\\f", "\f")
-                .replace("\\n", "\n")
-                .replace("\\r", "\r")
-                .replace("\\t", "\t");
+        int i = s.indexOf('\\');
+        if (i < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        sb.append(s, 0, i);
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = s.charAt(++i);
+            switch (next) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (i + 4 < s.length()) {
+                        sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    }
+                    sb.append(next);
+                    break;
+                default: sb.append(next); // \\, \", \/
+            }
+        }
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package storage;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable position in a paged walk over a {@link CalendarQuery}'s results, handed out by
+ * {@link EventCursor#getToken()}. Pass it to {@link CalendarStorage#openCursor(PageToken)}
+ * to continue where the walk left off, on whatever the calendar holds by then.
+ * <p>
+ * The position is the start time of the last event returned, plus the IDs of the events
+ * returned at exactly that time, so it stays valid across changes to the calendar.
+ */
+public final class PageToken {
+
+    private final CalendarQuery query;
+    private final int pageSize;
+    private final LocalDateTime lastStart; // null before the first event
+    private final Set<String> idsAtLastStart;
+    private final long delivered;
+
+    PageToken(CalendarQuery query, int pageSize, LocalDateTime lastStart, Set<String> idsAtLastStart,
+              long delivered) {
+        this.query = query;
+        this.pageSize = pageSize;
+        this.lastStart = lastStart;
+        this.idsAtLastStart = Collections.unmodifiableSet(idsAtLastStart);
+        this.delivered = delivered;
+    }
+
+    public CalendarQuery getQuery() {
+        return query;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return The start of the last event returned, or null if none has been.
+     */
+    public LocalDateTime getLastStart() {
+        return lastStart;
+    }
+
+    Set<String> getIdsAtLastStart() {
+        return idsAtLastStart;
+    }
+
+    /**
+     * @return The number of events returned so far.
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    @Override
+    public String toString() {
+        return "PageToken{lastStart=" + lastStart + ", delivered=" + delivered + ", pageSize=" + pageSize + "}";
+    }
+}
@@ -0,0 +1,18 @@
+package storage;
+
+/**
+ * How {@link CalendarStorage} writes mutations to disk.
+ */
+public enum PersistenceMode {
+    /**
+     * Rewrite the whole snapshot file on every mutation.
+     */
+    SNAPSHOT,
+
+    /**
+     * Append one small record per mutation to a journal next to the snapshot file.
+     * Startup loads the snapshot and replays the journal on top of it, and a
+     * background compactor periodically folds the journal back into the snapshot.
+     */
+    JOURNAL
+}
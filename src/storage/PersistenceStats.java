@@ -0,0 +1,42 @@
+package storage;
+
+/**
+ * Point-in-time persistence counters for a {@link CalendarStorage}.
+ */
+public final class PersistenceStats {
+
+    private final long mutations;
+    private final long flushes;
+
+    public PersistenceStats(long mutations, long flushes) {
+        this.mutations = mutations;
+        this.flushes = flushes;
+    }
+
+    /**
+     * @return Number of adds, updates and deletes handed to persistence.
+     */
+    public long getMutations() {
+        return mutations;
+    }
+
+    /**
+     * @return Number of disk writes that carried those mutations.
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return Mutations per flush; 1.0 when every mutation is written on its own.
+     */
+    public double getCoalescingRatio() {
+        return flushes == 0 ? 0.0 : (double) mutations / flushes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PersistenceStats{mutations=%d, flushes=%d, coalescing=%.2f}",
+                mutations, flushes, getCoalescingRatio());
+    }
+}
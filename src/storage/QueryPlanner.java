@@ -0,0 +1,443 @@
+package storage;
+
+import model.Event;
+import model.RecurrenceRule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a {@link CalendarQuery} against one {@link EventSnapshot}.
+ * <p>
+ * There are two access paths: walking the interval indexes over the time range, or
+ * reading the text index's postings for the query's text and detail words. The planner
+ * estimates the rows each would visit (starts in the range, counted from the interval
+ * index's subtree sizes, against the postings of the words) and takes the cheaper one.
+ * Type, detail and duration are then checked on the table's columns, so rows that don't
+ * match are never materialized.
+ * <p>
+ * When results are wanted by start time and the range is walked, matches are pulled
+ * from index cursors one at a time, merged with the occurrences of recurring events,
+ * so a limit ends the walk early. A limited text query in start order walks the range
+ * the same way, checking each row against the slots the postings matched, when that is
+ * expected to reach the limit sooner than reading every posting. Otherwise the matching
+ * (start, slot) keys are collected and sorted first, keeping only the first offset + limit
+ * of them in a bounded heap. Either way, events are only built as the stream is consumed.
+ */
+final class QueryPlanner {
+
+    enum Path {
+        TIME,
+        TEXT
+    }
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    // A result before materialization: an event, or one occurrence of a recurring event
+    private static final class Match {
+        final long start;
+        final int slot;
+        final boolean occurrence;
+
+        Match(long start, int slot, boolean occurrence) {
+            this.start = start;
+            this.slot = slot;
+            this.occurrence = occurrence;
+        }
+    }
+
+    private static final Comparator<Match> BY_START = (a, b) ->
+            a.start != b.start ? Long.compare(a.start, b.start) : Integer.compare(a.slot, b.slot);
+
+    private final EventSnapshot snapshot;
+    private final EventTable.Rows rows;
+    private final CalendarQuery query;
+    private final long from;
+    private final long to;
+    private final boolean expand; // Recurring events as occurrences, rather than once as their series
+    private final byte type;      // -1 for any
+    private final List<String> words = new ArrayList<>();      // Of the text
+    private final List<String> indexWords = new ArrayList<>(); // Of the text and detail
+
+    QueryPlanner(EventSnapshot snapshot, CalendarQuery query) {
+        this.snapshot = snapshot;
+        this.rows = snapshot.getRows();
+        this.query = query;
+        this.from = query.getFrom() == null ? Long.MIN_VALUE : EventTable.toMinutes(query.getFrom());
+        this.to = query.getTo() == null ? Long.MAX_VALUE : EventTable.toMinutes(query.getTo());
+        this.expand = query.isBounded();
+        if (query.getType() == null) {
+            this.type = -1;
+        } else {
+            this.type = query.getType().equals("Deadline") ? EventTable.TYPE_DEADLINE : EventTable.TYPE_APPOINTMENT;
+        }
+        if (query.getText() != null) {
+            TextIndex.tokenize(query.getText(), words);
+        }
+        indexWords.addAll(words);
+        if (query.getDetail() != null) {
+            TextIndex.tokenize(query.getDetail(), indexWords);
+        }
+    }
+
+    /**
+     * @return The rows a walk of the time range would visit, roughly.
+     */
+    long timeCost() {
+        IntervalIndex index = snapshot.getIndex();
+        long cost = index.countStartingBefore(to) - index.countStartingBefore(from);
+        long series = snapshot.getSeriesIndex().countStartingBefore(to);
+        if (expand) {
+            series *= Math.max(1, (to - from) / MINUTES_PER_DAY); // At most one occurrence a day
+        }
+        return cost + series;
+    }
+
+    /**
+     * @return The postings the text index would read, or {@link Long#MAX_VALUE} if it can't help.
+     */
+    long textCost() {
+        return indexWords.isEmpty() ? Long.MAX_VALUE : snapshot.getText().cost(indexWords);
+    }
+
+    Path path() {
+        return textCost() < timeCost() ? Path.TEXT : Path.TIME;
+    }
+
+    /**
+     * @return A description of the chosen path and both estimates.
+     */
+    String explain() {
+        long text = textCost();
+        return path() + " (time cost " + timeCost() + ", text cost "
+                + (text == Long.MAX_VALUE ? "n/a" : String.valueOf(text)) + ")";
+    }
+
+    /**
+     * Plans and runs the query. Nothing is read until the stream is consumed.
+     */
+    Stream<Event> run() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(Long.MIN_VALUE, Collections.emptySet(), query.getOffset(), query.getLimit()),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Plans and runs the query from a position in start order (see {@link EventCursor}).
+     * Nothing is read until the iterator is used.
+     *
+     * @param minStart Skip matches starting before this, in epoch minutes.
+     * @param seenIds  IDs of matches starting exactly at {@code minStart} to skip, as already seen.
+     * @param offset   Further matches to skip.
+     * @param limit    The most matches to return.
+     */
+    Iterator<Event> iterator(long minStart, Set<String> seenIds, int offset, long limit) {
+        return new Iterator<Event>() {
+            private Iterator<Match> matches;
+            private Match next;
+            private long remaining = limit;
+
+            @Override
+            public boolean hasNext() {
+                if (matches == null) {
+                    // Matches at minStart that were seen are skipped after, so keep that many more
+                    long keep = offset + limit + seenIds.size();
+                    matches = matches(minStart, keep < 0 ? Long.MAX_VALUE : keep);
+                    for (int i = 0; i < offset && advance() != null; i++) {
+                        next = null;
+                    }
+                }
+                return remaining > 0 && advance() != null;
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Match m = next;
+                next = null;
+                remaining--;
+                return m.occurrence ? rows.materialize(m.slot, EventTable.fromMinutes(m.start))
+                        : rows.materialize(m.slot);
+            }
+
+            // Loads the next match past the position, if not loaded yet
+            private Match advance() {
+                while (next == null && matches.hasNext()) {
+                    Match m = matches.next();
+                    if (m.start > minStart || (m.start == minStart && !seenIds.contains(rows.id(m.slot)))) {
+                        next = m;
+                    }
+                }
+                return next;
+            }
+        };
+    }
+
+    // The matches from minStart on; when they must be sorted first, only the first 'keep' are
+    private Iterator<Match> matches(long minStart, long keep) {
+        if (query.getText() != null && words.isEmpty()) {
+            return Collections.emptyIterator(); // Like search: a query without words matches nothing
+        }
+        Path path = path();
+        if (query.getSort() == CalendarQuery.Sort.START) {
+            if (path == Path.TIME) {
+                return new StartOrder(minStart, null);
+            }
+            // The range walk, checking slots against the postings, can stop once 'keep' are found;
+            // it visits about keep / (matches per row) rows, against every posting when collecting
+            long text = textCost();
+            if ((double) keep * timeCost() / Math.max(1, text) < text) {
+                BitSet slots = new BitSet();
+                for (int slot : snapshot.getText().search(indexWords)) {
+                    slots.set(slot);
+                }
+                return new StartOrder(minStart, slots);
+            }
+        }
+        Collected out = new Collected(order(), minStart, keep);
+        if (path == Path.TEXT) {
+            collectText(out);
+        } else {
+            collectTime(out);
+        }
+        return out.sorted().iterator();
+    }
+
+    // Matches gathered for sorting, holding at most 'keep' of them: the first in the order
+    private static final class Collected {
+        private final Comparator<Match> order;
+        private final long minStart;
+        private final long keep;
+        private final List<Match> all = new ArrayList<>(); // While keeping every match
+        private final PriorityQueue<Match> first;         // Otherwise, with the last of them on top
+
+        Collected(Comparator<Match> order, long minStart, long keep) {
+            this.order = order;
+            this.minStart = minStart;
+            this.keep = keep;
+            this.first = keep < Integer.MAX_VALUE ? new PriorityQueue<>(order.reversed()) : null;
+        }
+
+        void add(Match m) {
+            if (m.start < minStart) {
+                return;
+            }
+            if (first == null) {
+                all.add(m);
+            } else if (first.size() < keep) {
+                first.add(m);
+            } else if (keep > 0 && order.compare(m, first.peek()) < 0) {
+                first.poll();
+                first.add(m);
+            }
+        }
+
+        List<Match> sorted() {
+            List<Match> result = first == null ? all : new ArrayList<>(first);
+            result.sort(order);
+            return result;
+        }
+    }
+
+    private Comparator<Match> order() {
+        switch (query.getSort()) {
+            case START_DESCENDING:
+                return BY_START.reversed();
+            case TITLE:
+                return Comparator.comparing((Match m) -> rows.title(m.slot), String.CASE_INSENSITIVE_ORDER)
+                        .thenComparing(BY_START);
+            default:
+                return BY_START;
+        }
+    }
+
+    // The criteria checked on the columns; the text is left to the path
+    private boolean accepts(int slot) {
+        if (type >= 0 && rows.type(slot) != type) {
+            return false;
+        }
+        int duration = rows.duration(slot);
+        if (duration < query.getMinDuration() || duration > query.getMaxDuration()) {
+            return false;
+        }
+        return query.getDetail() == null || query.getDetail().equalsIgnoreCase(rows.detail(slot));
+    }
+
+    private boolean acceptsWithText(int slot) {
+        return accepts(slot) && (words.isEmpty() || TextIndex.matches(rows, slot, words));
+    }
+
+    private void collectTime(Collected out) {
+        snapshot.getIndex().forEachOverlapping(from, to, (start, end, slot) -> {
+            if (acceptsWithText(slot)) {
+                out.add(new Match(start, slot, false));
+            }
+            return true;
+        });
+        snapshot.getSeriesIndex().forEachOverlapping(from, to, (start, end, slot) -> {
+            if (acceptsWithText(slot)) {
+                addSeries(slot, out);
+            }
+            return true;
+        });
+    }
+
+    private void collectText(Collected out) {
+        for (int slot : snapshot.getText().search(indexWords)) {
+            boolean recurring = rows.isRecurring(slot);
+            long start = rows.start(slot);
+            // Postings outlive removed events; only slots still indexed are live
+            IntervalIndex live = recurring ? snapshot.getSeriesIndex() : snapshot.getIndex();
+            if (!live.contains(slot, start) || start >= to || rows.end(slot) <= from || !accepts(slot)) {
+                continue;
+            }
+            if (recurring) {
+                addSeries(slot, out);
+            } else {
+                out.add(new Match(start, slot, false));
+            }
+        }
+    }
+
+    private void addSeries(int slot, Collected out) {
+        if (!expand) {
+            out.add(new Match(rows.start(slot), slot, false));
+            return;
+        }
+        rows.recurrence(slot).forEachOccurrence(EventTable.fromMinutes(rows.start(slot)), rows.duration(slot),
+                EventTable.fromMinutes(from), EventTable.fromMinutes(to), start -> {
+                    out.add(new Match(EventTable.toMinutes(start), slot, true));
+                    return true;
+                });
+    }
+
+    // Merges one-off events and recurring events (or their occurrences) in start order, on demand
+    private final class StartOrder implements Iterator<Match> {
+        private final IntervalIndex.Cursor oneOffs;
+        private final IntervalIndex.Cursor series;
+        private final PriorityQueue<Occurrences> occurrences = new PriorityQueue<>();
+        private Match nextOneOff;
+        private Match nextSeries; // When not expanding
+
+        private final BitSet textSlots; // The slots the text index matched, or null to check the text per row
+
+        // Starts at the first match starting at or after minStart
+        StartOrder(long minStart, BitSet textSlots) {
+            this.textSlots = textSlots;
+            oneOffs = snapshot.getIndex().cursor(from, to, minStart);
+            nextOneOff = pull(oneOffs);
+            if (expand) {
+                // Every series still running can interleave, so each gets its place in the queue
+                series = snapshot.getSeriesIndex().cursor(Math.max(from, minStart), to);
+                while (series.next()) {
+                    if (wanted(series.slot())) {
+                        Occurrences o = new Occurrences(series.slot(), series.start());
+                        if (o.advance(minStart)) {
+                            occurrences.add(o);
+                        }
+                    }
+                }
+            } else {
+                series = snapshot.getSeriesIndex().cursor(from, to, minStart);
+                nextSeries = pull(series);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextOneOff != null || nextSeries != null || !occurrences.isEmpty();
+        }
+
+        @Override
+        public Match next() {
+            Match other = nextSeries;
+            if (!occurrences.isEmpty()) {
+                Occurrences o = occurrences.peek();
+                other = new Match(o.start, o.slot, true);
+            }
+            if (nextOneOff != null && (other == null || BY_START.compare(nextOneOff, other) < 0)) {
+                Match m = nextOneOff;
+                nextOneOff = pull(oneOffs);
+                return m;
+            }
+            if (other == null) {
+                throw new NoSuchElementException();
+            }
+            if (expand) {
+                Occurrences o = occurrences.poll();
+                if (o.advance(Long.MIN_VALUE)) {
+                    occurrences.add(o);
+                }
+            } else {
+                nextSeries = pull(series);
+            }
+            return other;
+        }
+
+        private Match pull(IntervalIndex.Cursor cursor) {
+            while (cursor.next()) {
+                if (wanted(cursor.slot())) {
+                    return new Match(cursor.start(), cursor.slot(), false);
+                }
+            }
+            return null;
+        }
+
+        private boolean wanted(int slot) {
+            return textSlots == null ? acceptsWithText(slot) : textSlots.get(slot) && accepts(slot);
+        }
+    }
+
+    // A recurring event's occurrences in the range, one at a time
+    private final class Occurrences implements Comparable<Occurrences> {
+        final int slot;
+        final RecurrenceRule rule;
+        final LocalDateTime seriesStart;
+        LocalDateTime current;
+        long start;
+
+        Occurrences(int slot, long seriesStart) {
+            this.slot = slot;
+            this.rule = rows.recurrence(slot);
+            this.seriesStart = EventTable.fromMinutes(seriesStart);
+        }
+
+        // Moves to the first occurrence in the range starting at or after minStart, then to each following one
+        boolean advance(long minStart) {
+            LocalDateTime next;
+            if (current != null) {
+                next = rule.nextOccurrenceAfter(seriesStart, current);
+            } else if (minStart > from) {
+                next = rule.nextOccurrenceAfter(seriesStart, EventTable.fromMinutes(minStart - 1));
+            } else {
+                next = rule.firstOccurrenceOverlapping(seriesStart, rows.duration(slot),
+                        EventTable.fromMinutes(from), EventTable.fromMinutes(to));
+            }
+            if (next == null || EventTable.toMinutes(next) >= to) {
+                return false;
+            }
+            current = next;
+            start = EventTable.toMinutes(next);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Occurrences o) {
+            return start != o.start ? Long.compare(start, o.start) : Integer.compare(slot, o.slot);
+        }
+    }
+}
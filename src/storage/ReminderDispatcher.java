@@ -0,0 +1,113 @@
+package storage;
+
+import model.Event;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Delivers reminder batches to the application's callback on a small bounded pool,
+ * so a slow or blocking callback never holds up the scheduler or the storage lock.
+ * <p>
+ * Reminders that come due together are delivered in one callback. When the dispatch
+ * queue is full, the scheduler thread delivers the batch itself; that throttles the
+ * scheduler to the callback's pace instead of queueing without bound or dropping reminders.
+ */
+class ReminderDispatcher implements ReminderScheduler.Sink, Closeable {
+
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final Function<ReminderScheduler.Due, Event> resolver;
+    private final Consumer<List<Event>> callback;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    /**
+     * @param resolver Looks up the current version of a due event, or null if it's gone.
+     * @param callback Receives each batch of events, earliest first.
+     */
+    ReminderDispatcher(Function<ReminderScheduler.Due, Event> resolver, Consumer<List<Event>> callback) {
+        this.resolver = resolver;
+        this.callback = callback;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                task -> {
+                    Thread thread = new Thread(task, "reminder-dispatch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, pool) -> {
+                    if (!pool.isShutdown()) {
+                        callerRuns.increment();
+                        task.run(); // Backpressure: the scheduler delivers this one itself
+                    }
+                });
+    }
+
+    @Override
+    public void remind(List<ReminderScheduler.Due> batch) {
+        long dueAt = System.nanoTime();
+        executor.execute(() -> deliver(batch, dueAt));
+    }
+
+    private void deliver(List<ReminderScheduler.Due> batch, long dueAt) {
+        List<Event> events = new ArrayList<>(batch.size());
+        for (ReminderScheduler.Due due : batch) {
+            Event event = resolver.apply(due);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dueAt);
+        totalLatencyMillis.add(latency);
+        maxLatencyMillis.accumulateAndGet(latency, Math::max);
+        batches.increment();
+        delivered.add(events.size());
+        try {
+            callback.accept(events);
+        } catch (RuntimeException e) {
+            System.err.println("Reminder callback failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    ReminderStats getStats() {
+        return new ReminderStats(delivered.sum(), batches.sum(), callerRuns.sum(),
+                totalLatencyMillis.sum(), maxLatencyMillis.get());
+    }
+
+    /**
+     * Stops accepting batches and waits briefly for queued ones to be delivered.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Reminder dispatch did not finish within " + SHUTDOWN_TIMEOUT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
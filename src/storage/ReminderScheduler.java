@@ -0,0 +1,328 @@
+package storage;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Fires event reminders at their reminder times from a priority queue keyed on those times.
+ * <p>
+ * Each event has at most one entry in the queue: its next reminder, or once they have
+ * all fired, a marker that forgets the event when it starts. Fired-state therefore
+ * expires on its own and memory stays proportional to the upcoming events.
+ * The queue is kept up to date incrementally by {@link #schedule} and {@link #cancel};
+ * superseded entries are simply skipped when they reach the head. The scheduler thread
+ * sleeps until the earliest reminder is due, so each wake-up costs O(due reminders).
+ * <p>
+ * A reminder that comes due late (the thread was starved or the clock jumped) still
+ * fires, as long as it is at most {@value #MAX_LATE_MINUTES} minutes overdue and its
+ * event hasn't started yet, so none are lost to drift. Reminders overdue by more, such
+ * as those that came due while the application wasn't running, are dropped rather
+ * than all fired at once on start. Several of an event's reminders that are overdue
+ * together fire once. Rescheduling an event
+ * without moving it (e.g. after a title edit) doesn't repeat reminders that already fired.
+ * <p>
+ * A recurring event is tracked by its next occurrence only; once that starts, the
+ * entry moves on to the following occurrence.
+ */
+class ReminderScheduler implements Closeable {
+
+    /**
+     * Receives reminders on the scheduler thread, outside its lock.
+     */
+    interface Sink {
+        /**
+         * @param batch Every reminder that came due together, earliest first.
+         */
+        void remind(List<Due> batch);
+    }
+
+    /**
+     * A reminder that has come due.
+     */
+    static final class Due {
+        final String eventId;
+        final long startMinutes;
+
+        Due(String eventId, long startMinutes) {
+            this.eventId = eventId;
+            this.startMinutes = startMinutes;
+        }
+    }
+
+    // Stale entries tolerated in the queue before it is rebuilt from the live ones
+    private static final int MIN_QUEUE_PURGE = 1024;
+
+    // Re-read the clock at least this often, in case it was changed while we slept
+    private static final long MAX_WAIT_MILLIS = 60_000;
+
+    // How late a reminder may still fire; ones overdue by more are dropped
+    static final int MAX_LATE_MINUTES = 5;
+
+    /**
+     * Returned by a next-occurrence function when there are no more occurrences.
+     */
+    static final long NO_OCCURRENCE = Long.MIN_VALUE;
+
+    private static final class Entry {
+        final String eventId;
+        final long start;   // Epoch minutes
+        final int[] offsets; // Minutes before the start, largest first
+        final int next;     // The offset this entry fires; offsets.length once all have fired
+        final long due;     // Epoch minutes
+        final LongUnaryOperator nextStart; // Next occurrence of a recurring event, or null
+
+        Entry(String eventId, long start, int[] offsets, int next, LongUnaryOperator nextStart) {
+            this.eventId = eventId;
+            this.start = start;
+            this.offsets = offsets;
+            this.next = next;
+            this.nextStart = nextStart;
+            // Once done, keep the entry through the start minute so edits can't re-fire it
+            this.due = next < offsets.length ? start - offsets[next] : start + 1;
+        }
+
+        boolean isDone() {
+            return next == offsets.length;
+        }
+    }
+
+    private final Sink sink;
+    private final Thread thread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(e -> e.due));
+    // The live entry per event; anything else in the queue is stale
+    private final Map<String, Entry> live = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * @param sink Receives each reminder.
+     */
+    ReminderScheduler(Sink sink) {
+        this.sink = sink;
+        this.thread = new Thread(this::run, "reminder-scheduler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Schedules (or reschedules) the reminders for an event starting at {@code startMinutes}.
+     * Events that have already started are ignored.
+     *
+     * @param offsets Minutes before the start, largest first. Not modified or copied.
+     */
+    void schedule(String eventId, long startMinutes, int[] offsets) {
+        schedule(eventId, startMinutes, offsets, null);
+    }
+
+    /**
+     * Schedules (or reschedules) the reminders for a recurring event whose next occurrence
+     * starts at {@code startMinutes}.
+     *
+     * @param offsets   Minutes before each start, largest first. Not modified or copied.
+     * @param nextStart Maps an occurrence's start to the next one's, or to {@link #NO_OCCURRENCE};
+     *                  null for a one-off event. Called on the scheduler thread, under its lock.
+     */
+    void schedule(String eventId, long startMinutes, int[] offsets, LongUnaryOperator nextStart) {
+        lock.lock();
+        try {
+            Entry old = live.remove(eventId);
+            if (startMinutes < nowMinutes()) {
+                return;
+            }
+            // Skip reminders already fired for this start time, and ones too late to fire
+            long firedThrough = old != null && old.start == startMinutes && old.next > 0
+                    ? startMinutes - old.offsets[old.next - 1] : Long.MIN_VALUE;
+            long tooLate = nowMinutes() - MAX_LATE_MINUTES;
+            int next = 0;
+            while (next < offsets.length && (startMinutes - offsets[next] <= firedThrough
+                    || startMinutes - offsets[next] < tooLate)) {
+                next++;
+            }
+            if (next == offsets.length && firedThrough == Long.MIN_VALUE) {
+                return; // No reminders left to fire
+            }
+            Entry entry = new Entry(eventId, startMinutes, offsets, next, nextStart);
+            live.put(eventId, entry);
+            queue.add(entry);
+            if (queue.size() > 2 * live.size() + MIN_QUEUE_PURGE) {
+                purgeStale();
+            }
+            if (queue.peek() == entry) {
+                changed.signalAll(); // New earliest reminder
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops any reminders for the event.
+     */
+    void cancel(String eventId) {
+        lock.lock();
+        try {
+            live.remove(eventId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of events tracked: those with reminders to come or
+     *         whose reminders have fired but that haven't started yet.
+     */
+    int getTrackedCount() {
+        lock.lock();
+        try {
+            return live.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler thread. Reminders not yet due are dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (thread.isAlive() && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<Due> due;
+            try {
+                due = awaitDue();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (due == null) {
+                return; // Closed
+            }
+            try {
+                sink.remind(due);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to deliver " + due.size() + " reminder(s): " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Blocks until at least one reminder is due, then takes every due reminder; null once closed
+    private List<Due> awaitDue() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed) {
+                Entry head = peekLive();
+                long now = nowMillis();
+                long wait = head == null ? MAX_WAIT_MILLIS : head.due * 60_000 - now;
+                if (wait > 0) {
+                    changed.await(Math.min(wait, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                long nowMinutes = Math.floorDiv(now, 60_000);
+                List<Due> due = new ArrayList<>();
+                while ((head = peekLive()) != null && head.due * 60_000 <= now) {
+                    queue.poll();
+                    if (head.isDone() || head.start < nowMinutes) {
+                        live.remove(head.eventId); // Started: nothing left to fire or remember
+                        advanceOccurrence(head, nowMinutes);
+                        continue;
+                    }
+                    // Drop reminders overdue by more than the grace period, then fire the next
+                    // one if it is due, passing any others already overdue along with it
+                    long tooLate = nowMinutes - MAX_LATE_MINUTES;
+                    int next = head.next;
+                    while (next < head.offsets.length && head.start - head.offsets[next] < tooLate) {
+                        next++;
+                    }
+                    if (next < head.offsets.length && head.start - head.offsets[next] <= nowMinutes) {
+                        due.add(new Due(head.eventId, head.start));
+                        next++;
+                        while (next < head.offsets.length && head.start - head.offsets[next] <= nowMinutes) {
+                            next++;
+                        }
+                    }
+                    Entry following = new Entry(head.eventId, head.start, head.offsets, next, head.nextStart);
+                    live.put(head.eventId, following);
+                    queue.add(following);
+                }
+                if (!due.isEmpty()) {
+                    return due;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves a recurring event on to its next occurrence that hasn't started
+    private void advanceOccurrence(Entry started, long nowMinutes) {
+        if (started.nextStart == null) {
+            return;
+        }
+        long start = started.start;
+        do {
+            start = started.nextStart.applyAsLong(start);
+        } while (start != NO_OCCURRENCE && start < nowMinutes);
+        if (start != NO_OCCURRENCE) {
+            Entry entry = new Entry(started.eventId, start, started.offsets, 0, started.nextStart);
+            live.put(entry.eventId, entry);
+            queue.add(entry);
+        }
+    }
+
+    // Discards superseded entries from the head of the queue
+    private Entry peekLive() {
+        Entry head;
+        while ((head = queue.peek()) != null && live.get(head.eventId) != head) {
+            queue.poll();
+        }
+        return head;
+    }
+
+    private void purgeStale() {
+        queue.clear();
+        queue.addAll(live.values());
+    }
+
+    // Event times are zone-less local times, so "now" is measured on the same scale
+    private static long nowMillis() {
+        return LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long nowMinutes() {
+        return Math.floorDiv(nowMillis(), 60_000);
+    }
+}
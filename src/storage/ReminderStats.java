@@ -0,0 +1,63 @@
+package storage;
+
+/**
+ * Point-in-time reminder delivery counters for a {@link CalendarStorage}.
+ */
+public final class ReminderStats {
+
+    private final long delivered;
+    private final long batches;
+    private final long callerRuns;
+    private final long totalLatencyMillis;
+    private final long maxLatencyMillis;
+
+    public ReminderStats(long delivered, long batches, long callerRuns, long totalLatencyMillis, long maxLatencyMillis) {
+        this.delivered = delivered;
+        this.batches = batches;
+        this.callerRuns = callerRuns;
+        this.totalLatencyMillis = totalLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * @return Number of reminders handed to the callback.
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return Number of callback invocations that carried those reminders.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return Number of batches the scheduler had to deliver itself because the
+     *         dispatch queue was full (backpressure).
+     */
+    public long getCallerRuns() {
+        return callerRuns;
+    }
+
+    /**
+     * @return Mean time from a batch coming due to its callback starting, in milliseconds.
+     */
+    public double getAverageLatencyMillis() {
+        return batches == 0 ? 0.0 : (double) totalLatencyMillis / batches;
+    }
+
+    /**
+     * @return Longest time from a batch coming due to its callback starting, in milliseconds.
+     */
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReminderStats{delivered=%d, batches=%d, callerRuns=%d, avgLatency=%.1fms, maxLatency=%dms}",
+                delivered, batches, callerRuns, getAverageLatencyMillis(), maxLatencyMillis);
+    }
+}
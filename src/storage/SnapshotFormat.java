@@ -0,0 +1,90 @@
+package storage;
+
+import model.Event;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * On-disk encodings for the full event snapshot.
+ */
+public enum SnapshotFormat {
+
+    /**
+     * Human-readable JSON array, the interchange format.
+     */
+    JSON {
+        @Override
+        int read(Path file, Consumer<Event> sink) throws IOException {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return JsonUtil.read(reader, sink);
+            }
+        }
+
+        @Override
+        void write(Path file, Iterable<Event> events) throws IOException {
+            JsonUtil.write(file, events);
+        }
+    },
+
+    /**
+     * Fixed-width binary records plus a string table, loaded via a memory-mapped file.
+     *
+     * @see BinaryEventStore
+     */
+    BINARY {
+        @Override
+        int read(Path file, Consumer<Event> sink) throws IOException {
+            return BinaryEventStore.read(file, sink);
+        }
+
+        @Override
+        void write(Path file, Iterable<Event> events) throws IOException {
+            BinaryEventStore.write(file, events);
+        }
+    };
+
+    /**
+     * File extension that selects {@link #BINARY} for a storage file.
+     */
+    public static final String BINARY_EXTENSION = ".bin";
+
+    /**
+     * Picks the format a storage file should be written in, from its extension.
+     */
+    public static SnapshotFormat forFile(Path file) {
+        return file.getFileName().toString().endsWith(BINARY_EXTENSION) ? BINARY : JSON;
+    }
+
+    /**
+     * Detects the format an existing file was written in, from its contents.
+     */
+    static SnapshotFormat detect(Path file) throws IOException {
+        return BinaryEventStore.isBinary(file) ? BINARY : JSON;
+    }
+
+    /**
+     * Reads a snapshot in whichever format it was written in.
+     *
+     * @return The number of events read.
+     */
+    static int readAny(Path file, Consumer<Event> sink) throws IOException {
+        return detect(file).read(file, sink);
+    }
+
+    /**
+     * Streams every event in the file to {@code sink}.
+     *
+     * @return The number of events read.
+     */
+    abstract int read(Path file, Consumer<Event> sink) throws IOException;
+
+    /**
+     * Replaces the file's contents with the given events, atomically.
+     */
+    abstract void write(Path file, Iterable<Event> events) throws IOException;
+}
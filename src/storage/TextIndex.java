@@ -0,0 +1,454 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable inverted index from the terms in events' titles, descriptions and details
+ * to posting lists of their slots (see {@link EventTable}).
+ * <p>
+ * A large base holds the terms in a sorted array, with each posting list as an ascending
+ * int array, so prefix lookups are a binary search followed by a scan. Terms added since
+ * the base was built go into a small persistent treap (path copying, like
+ * {@link IntervalIndex}), so each update shares all but O(log n) nodes with the previous
+ * version and published indexes can be searched without locking. Once the treap grows
+ * past a fraction of the base, the owner folds it in with {@link #merged()}.
+ * <p>
+ * Removing an event doesn't touch the index: postings of removed slots stay behind,
+ * and searches drop them by checking the slots against the live interval indexes.
+ * They go away when the table is compacted and the index rebuilt.
+ */
+final class TextIndex {
+
+    static final TextIndex EMPTY = new TextIndex(new String[0], new int[0][], 0, null, 0);
+
+    // Postings tolerated in the treap before it is folded into the base
+    private static final int MIN_DELTA_POSTINGS = 4096;
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    // A slot list in descending order (newest first), shared between versions
+    private static final class Slots {
+        final int slot;
+        final Slots next;
+        final int size;
+
+        Slots(int slot, Slots next) {
+            this.slot = slot;
+            this.next = next;
+            this.size = next == null ? 1 : next.size + 1;
+        }
+    }
+
+    private static final class Node {
+        final String term;
+        final int priority;
+        final Slots slots;
+        final Node left;
+        final Node right;
+
+        Node(String term, int priority, Slots slots, Node left, Node right) {
+            this.term = term;
+            this.priority = priority;
+            this.slots = slots;
+            this.left = left;
+            this.right = right;
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(term, priority, slots, left, right);
+        }
+    }
+
+    private final String[] terms;     // Sorted
+    private final int[][] postings;   // Ascending slots, parallel to terms
+    private final long basePostings;
+    private final Node delta;
+    private final int deltaPostings;
+
+    private TextIndex(String[] terms, int[][] postings, long basePostings, Node delta, int deltaPostings) {
+        this.terms = terms;
+        this.postings = postings;
+        this.basePostings = basePostings;
+        this.delta = delta;
+        this.deltaPostings = deltaPostings;
+    }
+
+    /**
+     * Builds an index of the given rows' slots.
+     *
+     * @param indexes Interval indexes whose slots are indexed.
+     */
+    static TextIndex build(EventTable.Rows rows, IntervalIndex... indexes) {
+        // Visit the live slots in ascending order, so every posting list comes out sorted
+        boolean[] live = new boolean[rows.capacity()];
+        for (IntervalIndex index : indexes) {
+            index.forEach((start, end, slot) -> {
+                live[slot] = true;
+                return true;
+            });
+        }
+        Map<String, int[]> lists = new HashMap<>(); // Each list's size is kept in element 0
+        List<String> tokens = new ArrayList<>();
+        StringBuilder scratch = new StringBuilder();
+        long total = 0;
+        for (int slot = 0; slot < live.length; slot++) {
+            if (!live[slot]) {
+                continue;
+            }
+            tokens.clear();
+            tokenize(rows.title(slot), tokens, scratch);
+            tokenize(rows.description(slot), tokens, scratch);
+            tokenize(rows.detail(slot), tokens, scratch);
+            for (String term : tokens) {
+                int[] list = lists.get(term);
+                if (list == null) {
+                    list = new int[4];
+                    lists.put(term, list);
+                } else if (list[list[0]] == slot) {
+                    continue; // Repeated within this event
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.put(term, list);
+                }
+                list[++list[0]] = slot;
+                total++;
+            }
+        }
+        String[] terms = lists.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[][] postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            int[] list = lists.get(terms[i]);
+            postings[i] = Arrays.copyOfRange(list, 1, list[0] + 1);
+        }
+        return new TextIndex(terms, postings, total, null, 0);
+    }
+
+    /**
+     * Returns an index that also holds the slot's terms. The slot must be newer (higher)
+     * than every slot already indexed, as the table's appended rows are.
+     */
+    TextIndex add(EventTable.Rows rows, int slot) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(rows, slot, tokens);
+        Node root = delta;
+        for (String term : tokens) {
+            root = put(root, term, slot);
+        }
+        return new TextIndex(terms, postings, basePostings, root, deltaPostings + tokens.size());
+    }
+
+    /**
+     * @return true once enough terms have been added that they should be merged into the base.
+     */
+    boolean needsMerge() {
+        return deltaPostings > Math.max(MIN_DELTA_POSTINGS, basePostings / 4);
+    }
+
+    /**
+     * Returns an equivalent index with every added term folded into the base.
+     */
+    TextIndex merged() {
+        if (delta == null) {
+            return this;
+        }
+        List<Node> added = new ArrayList<>();
+        inOrder(delta, added);
+        String[] mergedTerms = new String[terms.length + added.size()];
+        int[][] mergedPostings = new int[mergedTerms.length][];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < terms.length || j < added.size()) {
+            int c = i == terms.length ? 1 : j == added.size() ? -1 : terms[i].compareTo(added.get(j).term);
+            if (c < 0) {
+                mergedTerms[n] = terms[i];
+                mergedPostings[n++] = postings[i++];
+            } else {
+                Node node = added.get(j++);
+                // Added slots are all newer than the base's, so they go on the end
+                int[] base = c == 0 ? postings[i++] : NO_SLOTS;
+                int[] list = Arrays.copyOf(base, base.length + node.slots.size);
+                int k = list.length;
+                for (Slots s = node.slots; s != null; s = s.next) {
+                    list[--k] = s.slot;
+                }
+                mergedTerms[n] = node.term;
+                mergedPostings[n++] = list;
+            }
+        }
+        return new TextIndex(Arrays.copyOf(mergedTerms, n), Arrays.copyOf(mergedPostings, n),
+                basePostings + deltaPostings, null, 0);
+    }
+
+    /**
+     * Finds the slots whose text has, for every word of the query, a term starting with it.
+     * May include slots of removed events.
+     *
+     * @return The matching slots in ascending order; none for a query without words.
+     */
+    int[] search(String query) {
+        List<String> words = new ArrayList<>();
+        tokenize(query, words);
+        return search(words);
+    }
+
+    /**
+     * Like {@link #search(String)}, for a query already split by {@link #tokenize(String, List)}.
+     */
+    int[] search(List<String> words) {
+        if (words.isEmpty()) {
+            return NO_SLOTS;
+        }
+        int[][] matches = new int[words.size()][];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = prefixMatches(words.get(i));
+            if (matches[i].length == 0) {
+                return NO_SLOTS;
+            }
+        }
+        // Intersect starting from the rarest word, so the candidates only shrink
+        Arrays.sort(matches, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = matches[0];
+        for (int i = 1; i < matches.length && result.length > 0; i++) {
+            result = intersect(result, matches[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the work of {@link #search(List)}: the number of postings it would read.
+     */
+    long cost(List<String> words) {
+        long total = 0;
+        for (String word : words) {
+            for (int i = lowerBound(word); i < terms.length && terms[i].startsWith(word); i++) {
+                total += postings[i].length;
+            }
+            List<Slots> added = new ArrayList<>();
+            collectPrefix(delta, word, added);
+            for (Slots s : added) {
+                total += s.size;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Checks one slot without the index: true if its text has, for every word, a term starting
+     * with it. The slot's text is scanned in place, so checking many slots allocates nothing.
+     *
+     * @param words Lower-case words, as split by {@link #tokenize(String, List)}.
+     */
+    static boolean matches(EventTable.Rows rows, int slot, List<String> words) {
+        for (String word : words) {
+            if (!hasTermStartingWith(rows.title(slot), word) && !hasTermStartingWith(rows.description(slot), word)
+                    && !hasTermStartingWith(rows.detail(slot), word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether one of the terms tokenize would split the text into starts with the word
+    private static boolean hasTermStartingWith(String text, String word) {
+        if (text == null) {
+            return false;
+        }
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            // A term starts at i: compare its first characters, then skip the rest of it
+            int k = 0;
+            while (k < word.length() && i < text.length() && Character.isLetterOrDigit(text.charAt(i))
+                    && Character.toLowerCase(text.charAt(i)) == word.charAt(k)) {
+                i++;
+                k++;
+            }
+            if (k == word.length()) {
+                return true;
+            }
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    // The union of the posting lists of every term starting with the prefix
+    private int[] prefixMatches(String prefix) {
+        List<int[]> lists = new ArrayList<>();
+        int total = 0;
+        for (int i = lowerBound(prefix); i < terms.length && terms[i].startsWith(prefix); i++) {
+            lists.add(postings[i]);
+            total += postings[i].length;
+        }
+        List<Slots> added = new ArrayList<>();
+        collectPrefix(delta, prefix, added);
+        for (Slots s : added) {
+            int[] list = new int[s.size];
+            int k = list.length;
+            for (; s != null; s = s.next) {
+                list[--k] = s.slot;
+            }
+            lists.add(list);
+            total += list.length;
+        }
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] list : lists) {
+            System.arraycopy(list, 0, all, n, list.length);
+            n += list.length;
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        return distinct == all.length ? all : Arrays.copyOf(all, distinct);
+    }
+
+    // Looks each of the smaller list's slots up in the larger one, galloping forward
+    private static int[] intersect(int[] small, int[] large) {
+        int[] out = new int[small.length];
+        int n = 0;
+        int from = 0;
+        for (int slot : small) {
+            int step = 1;
+            int hi = from;
+            while (hi < large.length && large[hi] < slot) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(large, from, Math.min(hi + 1, large.length), slot);
+            if (at >= 0) {
+                out[n++] = slot;
+                from = at + 1;
+            } else {
+                from = -at - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private int lowerBound(String prefix) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Collects, in term order, the slot lists of treap terms starting with the prefix
+    private static void collectPrefix(Node n, String prefix, List<Slots> out) {
+        if (n == null) {
+            return;
+        }
+        boolean match = n.term.startsWith(prefix);
+        boolean before = !match && n.term.compareTo(prefix) < 0;
+        if (!before) {
+            collectPrefix(n.left, prefix, out);
+        }
+        if (match) {
+            out.add(n.slots);
+        }
+        if (match || before) {
+            collectPrefix(n.right, prefix, out);
+        }
+    }
+
+    private static void inOrder(Node n, List<Node> out) {
+        if (n != null) {
+            inOrder(n.left, out);
+            out.add(n);
+            inOrder(n.right, out);
+        }
+    }
+
+    private static Node put(Node n, String term, int slot) {
+        if (n == null) {
+            return new Node(term, priority(term), new Slots(slot, null), null, null);
+        }
+        int c = term.compareTo(n.term);
+        if (c == 0) {
+            return new Node(n.term, n.priority, new Slots(slot, n.slots), n.left, n.right);
+        }
+        if (c < 0) {
+            Node left = put(n.left, term, slot);
+            // Rotate right if the new child outranks this node
+            return left.priority > n.priority ? left.with(left.left, n.with(left.right, n.right))
+                    : n.with(left, n.right);
+        }
+        Node right = put(n.right, term, slot);
+        return right.priority > n.priority ? right.with(n.with(n.left, right.left), right.right)
+                : n.with(n.left, right);
+    }
+
+    // Priorities are a hash of the term, so updates need no shared random state
+    private static int priority(String term) {
+        int h = term.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    // The distinct terms of a slot's title, description and detail
+    private static void tokenize(EventTable.Rows rows, int slot, List<String> out) {
+        StringBuilder scratch = new StringBuilder();
+        tokenize(rows.title(slot), out, scratch);
+        tokenize(rows.description(slot), out, scratch);
+        tokenize(rows.detail(slot), out, scratch);
+        if (out.size() > 1) {
+            List<String> distinct = new ArrayList<>(new LinkedHashSet<>(out));
+            out.clear();
+            out.addAll(distinct);
+        }
+    }
+
+    /**
+     * Splits text into lower-case terms: maximal runs of letters and digits.
+     */
+    static void tokenize(String text, List<String> out) {
+        tokenize(text, out, new StringBuilder());
+    }
+
+    private static void tokenize(String text, List<String> out, StringBuilder scratch) {
+        if (text == null) {
+            return;
+        }
+        scratch.setLength(0);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                scratch.append(Character.toLowerCase(c));
+            } else if (scratch.length() > 0) {
+                out.add(scratch.toString());
+                scratch.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package storage;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs a flush action on a dedicated thread, coalescing mutations into group commits.
+ * <p>
+ * Callers report mutations with {@link #mutated(int)} and return immediately. The
+ * persister thread flushes once {@code maxPendingMutations} are pending or the oldest
+ * pending mutation is {@code maxDelayMillis} old, whichever comes first.
+ */
+class WriteBehindPersister implements Closeable {
+
+    private final Runnable flushAction;
+    private final long maxDelayNanos;
+    private final int maxPendingMutations;
+    private final Thread thread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long requested; // Mutations reported so far
+    private long taken;     // Mutations covered by the flush in progress (or last one started)
+    private long flushed;   // Mutations covered by completed flushes
+    private long flushes;
+    private long firstPendingAt;
+    private boolean flushRequested;
+    private boolean closed;
+
+    WriteBehindPersister(Runnable flushAction, WriteBehindPolicy policy) {
+        this.flushAction = flushAction;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMaxDelayMillis());
+        this.maxPendingMutations = policy.getMaxPendingMutations();
+        this.thread = new Thread(this::run, "write-behind-persister");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Records {@code count} mutations made together, to be covered by an upcoming flush.
+     */
+    void mutated(int count) {
+        lock.lock();
+        try {
+            if (requested == taken) {
+                firstPendingAt = System.nanoTime();
+            }
+            requested += count;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every mutation reported so far has been flushed.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            long target = requested;
+            flushRequested = true;
+            changed.signalAll();
+            while (flushed < target && thread.isAlive()) {
+                changed.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    PersistenceStats getStats() {
+        lock.lock();
+        try {
+            return new PersistenceStats(requested, flushes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes everything pending and stops the persister thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long target;
+            lock.lock();
+            try {
+                while (requested == taken && !closed) {
+                    flushRequested = false;
+                    changed.awaitUninterruptibly();
+                }
+                if (requested == taken) {
+                    return; // Closed with nothing pending
+                }
+                // Let the batch fill up or age out
+                while (!closed && !flushRequested && requested - taken < maxPendingMutations) {
+                    long remaining = firstPendingAt + maxDelayNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        changed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                target = requested;
+                taken = target;
+                flushRequested = false;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flushAction.run();
+            } catch (RuntimeException e) {
+                System.err.println("Write-behind flush failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            lock.lock();
+            try {
+                flushed = target;
+                flushes++;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
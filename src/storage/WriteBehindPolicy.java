@@ -0,0 +1,34 @@
+package storage;
+
+/**
+ * Settings for write-behind persistence: mutations are acknowledged immediately and
+ * written to disk by a background thread in coalesced batches.
+ */
+public final class WriteBehindPolicy {
+
+    private final long maxDelayMillis;
+    private final int maxPendingMutations;
+
+    /**
+     * @param maxDelayMillis      Longest a mutation may wait before its batch is flushed (must be > 0).
+     * @param maxPendingMutations Flush as soon as this many mutations are pending (must be > 0).
+     */
+    public WriteBehindPolicy(long maxDelayMillis, int maxPendingMutations) {
+        if (maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("Max delay must be positive.");
+        }
+        if (maxPendingMutations <= 0) {
+            throw new IllegalArgumentException("Max pending mutations must be positive.");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxPendingMutations = maxPendingMutations;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getMaxPendingMutations() {
+        return maxPendingMutations;
+    }
+}